@@ -0,0 +1,64 @@
+package bank;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Read paths of {@link PrivateBank} on one account of a given size. The bank is shared by all
+ * benchmark threads, so running with {@code -t N} measures the reads under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankReadBenchmark {
+
+    private static final String ACCOUNT = "Account";
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int accountSize;
+
+    private Path directory;
+    private PrivateBank bank;
+    private List<Transaction> stored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("bank-read-benchmark");
+        bank = new PrivateBank("Benchmark", 0.05, 0.1, directory.toString());
+        bank.createAccount(ACCOUNT, BenchmarkData.transactions(accountSize, "Read"));
+        stored = bank.getTransactions(ACCOUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        bank.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public double getAccountBalance() {
+        return bank.getAccountBalance(ACCOUNT);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSorted() {
+        return bank.getTransactionsSorted(ACCOUNT, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByType() {
+        return bank.getTransactionsByType(ACCOUNT, false);
+    }
+
+    @Benchmark
+    public boolean containsTransaction() {
+        return bank.containsTransaction(ACCOUNT, stored.get(ThreadLocalRandom.current().nextInt(stored.size())));
+    }
+}
@@ -0,0 +1,61 @@
+package bank;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link PrivateBank#addTransaction} on an account that starts with the given size, for each
+ * persistence mode. Every invocation adds a new transaction, so the account grows slightly
+ * during the measurement. Threads share the bank and the account ({@code -t N}); group
+ * commit only batches the mutations of several threads, with one thread every invocation
+ * waits for the commit window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankWriteBenchmark {
+
+    private static final String ACCOUNT = "Account";
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int accountSize;
+
+    /**
+     * snapshot = rewrite the account file per mutation, journal = append a journal record,
+     * group = journal with group commit. In every mode an invocation ends once its mutation
+     * is written; in group mode it waits for the batch that forces it to disk.
+     */
+    @Param({"snapshot", "journal", "group"})
+    public String persistence;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Path directory;
+    private PrivateBank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("bank-write-benchmark");
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(!persistence.equals("snapshot"));
+        options.setGroupCommit(persistence.equals("group"));
+        bank = new PrivateBank("Benchmark", 0.05, 0.1, directory.toString(), options);
+        bank.createAccount(ACCOUNT, BenchmarkData.transactions(accountSize, "Initial"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        bank.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void addTransaction() throws Exception {
+        bank.addTransactionAsync(ACCOUNT, BenchmarkData.transaction(sequence.getAndIncrement(), "Added")).join();
+    }
+}
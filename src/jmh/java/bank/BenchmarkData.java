@@ -0,0 +1,60 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic test data and file helpers shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a mix of payments, incoming and outgoing transfers with distinct descriptions.
+     * All amounts are positive, as required by {@link PrivateBank#createAccount(String, List)}.
+     *
+     * @param count  the number of transactions
+     * @param prefix a prefix making the descriptions unique across calls
+     * @return the transactions
+     */
+    static List<Transaction> transactions(int count, String prefix) throws TransactionAttributeException {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(transaction(i, prefix));
+        }
+        return transactions;
+    }
+
+    /**
+     * Creates the i-th transaction of the mix.
+     */
+    static Transaction transaction(int i, String prefix) throws TransactionAttributeException {
+        String date = String.format("%02d.%02d.2024", 1 + i % 28, 1 + i % 12);
+        double amount = 1 + (i * 37 % 10_000) / 100.0;
+        switch (i % 3) {
+            case 0: return new Payment(date, amount, prefix + i, 0.05, 0.1);
+            case 1: return new IncomingTransfer(date, amount, prefix + i, "Sender" + i % 50, "Account");
+            default: return new OutgoingTransfer(date, amount, prefix + i, "Account", "Recipient" + i % 50);
+        }
+    }
+
+    /**
+     * Deletes a directory with all its content.
+     */
+    static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bank;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of one account write: a Gson instance built per write (the former behaviour of
+ * writeAccount) against the shared {@link TransactionJson} components. Both variants write
+ * through the same writer stack as {@link JsonAccountCodec} into a null stream, so the
+ * difference is only the Gson and adapter setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationCostBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int size;
+
+    private List<Transaction> account;
+
+    @Setup
+    public void setUp() throws Exception {
+        account = BenchmarkData.transactions(size, "Serialize");
+    }
+
+    @Benchmark
+    public void perWriteGson() throws IOException {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Transaction.class, new TransactionSerializer())
+                .setPrettyPrinting()
+                .create();
+        Type listType = new TypeToken<Collection<Transaction>>(){}.getType();
+        JsonWriter json = gson.newJsonWriter(nullWriter());
+        gson.toJson(account, listType, json);
+        json.flush();
+    }
+
+    @Benchmark
+    public void sharedCodec() throws IOException {
+        StorageFormat.JSON.codec().write(account, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * @return the writer stack of {@link JsonAccountCodec#write} over a null stream
+     */
+    private static Writer nullWriter() {
+        return new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+    }
+}
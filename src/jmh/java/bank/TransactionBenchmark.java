@@ -0,0 +1,54 @@
+package bank;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-transaction costs: interest calculation and JSON round trips through
+ * {@link TransactionSerializer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Transaction.class, new TransactionSerializer())
+            .create();
+
+    private Payment payment;
+    private Transaction transfer;
+    private String transferJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        payment = new Payment("01.01.2024", -1234.56, "Rent", 0.05, 0.1);
+        transfer = BenchmarkData.transaction(1, "Json");
+        transferJson = gson.toJson(transfer, Transaction.class);
+    }
+
+    @Benchmark
+    public double paymentCalculate() {
+        return payment.calculate();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(transfer, Transaction.class);
+    }
+
+    @Benchmark
+    public Transaction deserialize() {
+        return gson.fromJson(transferJson, Transaction.class);
+    }
+
+    @Benchmark
+    public Transaction roundTrip() {
+        return gson.fromJson(gson.toJson(transfer, Transaction.class), Transaction.class);
+    }
+}
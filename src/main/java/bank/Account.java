@@ -0,0 +1,614 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory state of a single account of a {@link PrivateBank}.
+ * <p>
+ * Every field is guarded by {@link #lock}: queries take the read lock, mutations and the
+ * persistence bookkeeping take the write lock. Each account has its own lock, so operations
+ * on different accounts never wait for each other.
+ * <p>
+ * An account can exist without its transactions being loaded (lazy loading); in that state
+ * only the name is known and the transaction fields are unset until {@link #load} is called.
+ */
+class Account {
+
+    /**
+     * The name of the account.
+     */
+    final String name;
+
+    /**
+     * Lock guarding the state of this account.
+     */
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The transactions of the account in insertion order.
+     * <p>
+     * The linked hash set serves as list and hash index at the same time: iteration keeps the
+     * insertion order, while duplicate checks, lookups and removals run in constant expected time.
+     */
+    LinkedHashSet<Transaction> transactions;
+
+    /**
+     * The insertion order again, addressable by position, for {@link #page(int, int)}.
+     */
+    InsertionOrder order;
+
+    /**
+     * Ordered index of the transactions by {@link Transaction#calculateCents()}: each key maps to
+     * the transactions with that value in insertion order. Maintained by {@link #add(Transaction)}
+     * and {@link #remove(Transaction)}, so sorted reads are a walk instead of a sort.
+     */
+    TreeMap<Long, LinkedHashSet<Transaction>> byValue;
+
+    /**
+     * Index of the transactions by date ({@link TransactionDates#toEpochDay(String)}): each
+     * epoch day maps to the transactions of that day in insertion order. Undated transactions
+     * are kept under {@link TransactionDates#UNDATED}, which no date range includes.
+     */
+    TreeMap<Long, LinkedHashSet<Transaction>> byDate;
+
+    /**
+     * Transactions with a positive calculated value (incoming), in insertion order.
+     */
+    LinkedHashSet<Transaction> incoming;
+
+    /**
+     * Transactions with a negative calculated value (outgoing), in insertion order.
+     * Transactions with a value of zero belong to neither partition.
+     */
+    LinkedHashSet<Transaction> outgoing;
+
+    /**
+     * Sums of {@link Transaction#calculateCents()} over {@link #incoming} and {@link #outgoing}.
+     */
+    long incomingCents, outgoingCents;
+
+    /**
+     * Read-only copies of the partitions handed out to readers; reset to null when the
+     * partition changes and rebuilt by the next read.
+     */
+    private List<Transaction> incomingView, outgoingView;
+
+    /**
+     * Read-only copy of {@link #transactions} handed out to readers; reset to null by every
+     * mutation and rebuilt by the next read.
+     */
+    private List<Transaction> view;
+
+    /**
+     * Prefix sums of the calculated values in date order, for {@link #balanceAsOf(long)}. Kept up
+     * to date while transactions arrive in date order, otherwise reset to null and rebuilt by the
+     * next query. Volatile, because readers under the shared read lock may publish a rebuilt one.
+     */
+    private volatile DatePrefix datePrefix;
+
+    /**
+     * Whether the transactions are in memory. Written under the write lock, volatile so that
+     * statistics can read it without locking.
+     */
+    volatile boolean loaded;
+
+    /**
+     * Whether the account was deleted. Set under the write lock; a thread that looked the
+     * account up before the deletion sees it once it holds the lock and treats the account
+     * as missing instead of loading it again.
+     */
+    volatile boolean deleted;
+
+    /**
+     * {@link System#nanoTime()} of the last access, for the eviction order of the
+     * {@link AccountCache}. Written without the lock; volatile so that eviction sees recent stamps.
+     */
+    volatile long lastAccess;
+
+    /**
+     * Running sum of {@link Transaction#calculateCents()} over all transactions, kept up to date
+     * by {@link #add(Transaction)} and {@link #remove(Transaction)}. Exact, since it is in cents.
+     */
+    long balanceCents;
+
+    /**
+     * Number of records currently stored in the journal file (journaling mode only).
+     */
+    int journalRecords;
+
+    /**
+     * Journal records not yet written by the group committer (group commit only).
+     */
+    List<TransactionJournal.Entry> pendingJournal = new ArrayList<>();
+
+    /**
+     * Whether the next group commit must write a full snapshot (group commit only).
+     */
+    boolean snapshotRequested;
+
+    /**
+     * Number of mutations applied to the account; compared with {@link #persistedVersion}.
+     */
+    long version;
+
+    /**
+     * Value of {@link #version} that has been written to disk.
+     */
+    long persistedVersion;
+
+    /**
+     * Creates an account whose transactions are not loaded yet.
+     *
+     * @param name the name of the account
+     */
+    Account(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a loaded account.
+     *
+     * @param name         the name of the account
+     * @param transactions the initial transactions (taken over, not copied)
+     */
+    Account(String name, LinkedHashSet<Transaction> transactions) {
+        this.name = name;
+        load(transactions, 0);
+    }
+
+    /**
+     * Installs the transactions of the account. Requires the write lock.
+     *
+     * @param transactions   the transactions (taken over, not copied)
+     * @param journalRecords the number of records in the journal file
+     */
+    void load(LinkedHashSet<Transaction> transactions, int journalRecords) {
+        this.transactions = transactions;
+        this.journalRecords = journalRecords;
+        this.order = new InsertionOrder();
+        this.byValue = new TreeMap<>();
+        this.byDate = new TreeMap<>();
+        this.incoming = new LinkedHashSet<>();
+        this.outgoing = new LinkedHashSet<>();
+        this.incomingCents = 0;
+        this.outgoingCents = 0;
+        this.incomingView = null;
+        this.outgoingView = null;
+        this.view = null;
+        this.datePrefix = null;
+        long sum = 0;
+        for (Transaction t : transactions) {
+            long cents = t.calculateCents();
+            index(t, cents);
+            sum += cents;
+        }
+        this.balanceCents = sum;
+        this.loaded = true;
+    }
+
+    /**
+     * Adds a transaction and updates the running balance. Requires the write lock.
+     *
+     * @param transaction the transaction to add
+     * @return false if an equal transaction is already stored
+     */
+    boolean add(Transaction transaction) {
+        if (!transactions.add(transaction)) return false;
+        view = null;
+        long cents = transaction.calculateCents();
+        index(transaction, cents);
+        balanceCents += cents;
+        return true;
+    }
+
+    /**
+     * Removes a transaction and updates the running balance. Requires the write lock.
+     *
+     * @param transaction the transaction to remove
+     * @return false if no equal transaction is stored
+     */
+    boolean remove(Transaction transaction) {
+        if (!transactions.remove(transaction)) return false;
+        view = null;
+        order.remove(transaction);
+        long cents = transaction.calculateCents();
+        LinkedHashSet<Transaction> group = byValue.get(cents);
+        group.remove(transaction);
+        if (group.isEmpty()) byValue.remove(cents);
+        long day = transaction.getEpochDay();
+        LinkedHashSet<Transaction> sameDay = byDate.get(day);
+        sameDay.remove(transaction);
+        if (sameDay.isEmpty()) byDate.remove(day);
+        DatePrefix prefix = datePrefix;
+        if (prefix != null && day != TransactionDates.UNDATED) datePrefix = prefix.remove(day, cents, sameDay.isEmpty());
+        if (cents > 0) {
+            incoming.remove(transaction);
+            incomingCents -= cents;
+            incomingView = null;
+        } else if (cents < 0) {
+            outgoing.remove(transaction);
+            outgoingCents -= cents;
+            outgoingView = null;
+        }
+        balanceCents -= cents;
+        return true;
+    }
+
+    private void index(Transaction transaction, long cents) {
+        order.add(transaction);
+        byValue.computeIfAbsent(cents, value -> new LinkedHashSet<>()).add(transaction);
+        long day = transaction.getEpochDay();
+        byDate.computeIfAbsent(day, key -> new LinkedHashSet<>()).add(transaction);
+        DatePrefix prefix = datePrefix;
+        if (prefix != null && day != TransactionDates.UNDATED) datePrefix = prefix.add(day, cents);
+        if (cents > 0) {
+            incoming.add(transaction);
+            incomingCents += cents;
+            incomingView = null;
+        } else if (cents < 0) {
+            outgoing.add(transaction);
+            outgoingCents += cents;
+            outgoingView = null;
+        }
+    }
+
+    /**
+     * Returns the incoming or outgoing partition as a read-only list. The list is built once
+     * per change of the partition and shared between readers until the next change; it stays
+     * valid after the lock is released. Requires a lock.
+     *
+     * @param positive true for the incoming, false for the outgoing partition
+     * @return an unmodifiable list in insertion order
+     */
+    List<Transaction> partition(boolean positive) {
+        // concurrent readers may both build the list; the results are equal and immutable
+        if (positive) {
+            List<Transaction> view = incomingView;
+            if (view == null) incomingView = view = List.copyOf(incoming);
+            return view;
+        }
+        List<Transaction> view = outgoingView;
+        if (view == null) outgoingView = view = List.copyOf(outgoing);
+        return view;
+    }
+
+    /**
+     * Returns the transactions ordered by calculated value by walking the index.
+     * Transactions with equal values keep their insertion order. Requires a lock.
+     *
+     * @param asc true for ascending, false for descending order
+     * @return a new sorted list
+     */
+    List<Transaction> sorted(boolean asc) {
+        List<Transaction> result = new ArrayList<>(transactions.size());
+        NavigableMap<Long, LinkedHashSet<Transaction>> order = asc ? byValue : byValue.descendingMap();
+        for (LinkedHashSet<Transaction> group : order.values()) result.addAll(group);
+        return result;
+    }
+
+    /**
+     * Returns a page of the transactions in insertion order from the positional index, in
+     * O(limit log n) at most, whether or not the account changed since the last read.
+     * Requires a lock.
+     *
+     * @param offset index of the first transaction
+     * @param limit  maximum number of transactions
+     * @return a new list, empty if the offset is past the end
+     */
+    List<Transaction> page(int offset, int limit) {
+        return order.page(offset, limit);
+    }
+
+    /**
+     * Returns the transactions between two days in date order by walking the date index;
+     * transactions of the same day keep their insertion order. Requires a lock.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay   last epoch day, inclusive
+     * @param offset  number of matching transactions to skip
+     * @param limit   maximum number of transactions
+     * @return a new list
+     */
+    List<Transaction> between(long fromDay, long toDay, int offset, int limit) {
+        List<Transaction> result = new ArrayList<>();
+        if (limit == 0) return result;
+        int skip = offset;
+        for (LinkedHashSet<Transaction> day : byDate.subMap(fromDay, true, toDay, true).values()) {
+            if (skip >= day.size()) {
+                skip -= day.size();
+                continue;
+            }
+            for (Transaction t : day) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.add(t);
+                    if (result.size() == limit) return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the balance at the end of a day from the date-ordered prefix sums: a binary search
+     * once they are built. Undated transactions are not included. Requires a lock.
+     *
+     * @param day the epoch day
+     * @return the sum of the calculated values of all transactions dated up to the day, in cents
+     */
+    long balanceAsOf(long day) {
+        DatePrefix prefix = datePrefix;
+        if (prefix == null) {
+            // concurrent readers may both build the sums; the results are equal
+            prefix = new DatePrefix(byDate.size());
+            for (Map.Entry<Long, LinkedHashSet<Transaction>> entry : byDate.entrySet()) {
+                if (entry.getKey() == TransactionDates.UNDATED) continue;
+                long cents = 0;
+                for (Transaction t : entry.getValue()) cents += t.calculateCents();
+                prefix.add(entry.getKey(), cents);
+            }
+            datePrefix = prefix;
+        }
+        return prefix.sumUpTo(day);
+    }
+
+    /**
+     * Recomputes the balance from scratch, without changing the cached value. Requires a lock.
+     *
+     * @return the sum of {@link Transaction#calculateCents()} over all transactions
+     */
+    long recalculateBalance() {
+        long sum = 0;
+        for (Transaction t : transactions) sum += t.calculateCents();
+        return sum;
+    }
+
+    /**
+     * Checks the derived state against {@link Transaction#calculateCents()}: the running balance,
+     * the subtotals and the place of every transaction in the hash set, the value and date
+     * indexes and the partitions. Requires a lock.
+     *
+     * @return true if nothing drifted
+     */
+    boolean isConsistent() {
+        long sum = 0, in = 0, out = 0;
+        int inCount = 0, outCount = 0;
+        for (Transaction t : transactions) {
+            long cents = t.calculateCents();
+            sum += cents;
+            LinkedHashSet<Transaction> group = byValue.get(cents);
+            LinkedHashSet<Transaction> sameDay = byDate.get(t.getEpochDay());
+            if (!transactions.contains(t) || group == null || !group.contains(t)
+                    || sameDay == null || !sameDay.contains(t)) return false;
+            if (cents > 0) {
+                if (!incoming.contains(t)) return false;
+                in += cents;
+                inCount++;
+            } else if (cents < 0) {
+                if (!outgoing.contains(t)) return false;
+                out += cents;
+                outCount++;
+            }
+        }
+        return sum == balanceCents && in == incomingCents && out == outgoingCents
+                && inCount == incoming.size() && outCount == outgoing.size();
+    }
+
+    /**
+     * Rebuilds the hash set and every derived index from the current state of the transactions,
+     * after they were modified behind the account's back. Requires the write lock.
+     *
+     * @return the change in the number of transactions; negative if modified ones became equal
+     */
+    int rebuild() {
+        int before = transactions.size();
+        load(new LinkedHashSet<>(transactions), journalRecords);
+        return transactions.size() - before;
+    }
+
+    /**
+     * Drops the transactions from memory; the account can be loaded again from its files.
+     * Requires the write lock, and the account must be clean.
+     */
+    void unload() {
+        this.loaded = false;
+        this.transactions = null;
+        this.order = null;
+        this.byValue = null;
+        this.byDate = null;
+        this.incoming = null;
+        this.outgoing = null;
+        this.incomingView = null;
+        this.outgoingView = null;
+        this.view = null;
+        this.datePrefix = null;
+        this.incomingCents = 0;
+        this.outgoingCents = 0;
+        this.journalRecords = 0;
+        this.balanceCents = 0;
+    }
+
+    /**
+     * @return true if every mutation of the account has been written to disk. Requires a lock.
+     */
+    boolean isClean() {
+        return version == persistedVersion && pendingJournal.isEmpty() && !snapshotRequested;
+    }
+
+    /**
+     * Returns a copy of the transactions. Requires a lock.
+     *
+     * @return a new list with the current transactions
+     */
+    List<Transaction> snapshot() {
+        return new ArrayList<>(transactions);
+    }
+
+    /**
+     * Returns the transactions as a read-only list. The list is built on the first read after
+     * a mutation and shared between readers until the next one, so it is an immutable snapshot
+     * that stays valid after the lock is released. Requires a lock.
+     *
+     * @return an unmodifiable list in insertion order
+     */
+    List<Transaction> view() {
+        // concurrent readers may both build the list; the results are equal and immutable
+        List<Transaction> current = view;
+        if (current == null) view = current = List.copyOf(transactions);
+        return current;
+    }
+
+    /**
+     * Distinct epoch days in ascending order with the running sum of the values up to each day.
+     * Changes are only applied in place at the last day; anything else requires a rebuild.
+     */
+    private static final class DatePrefix {
+
+        private long[] days;
+        private long[] sums;
+        private int size;
+
+        DatePrefix(int capacity) {
+            days = new long[Math.max(capacity, 8)];
+            sums = new long[days.length];
+        }
+
+        /**
+         * @return this, or null if the day lies before the last day and the sums must be rebuilt
+         */
+        DatePrefix add(long day, long cents) {
+            if (size > 0 && day == days[size - 1]) {
+                sums[size - 1] += cents;
+            } else if (size == 0 || day > days[size - 1]) {
+                if (size == days.length) {
+                    days = Arrays.copyOf(days, size * 2);
+                    sums = Arrays.copyOf(sums, size * 2);
+                }
+                days[size] = day;
+                sums[size] = (size == 0 ? 0 : sums[size - 1]) + cents;
+                size++;
+            } else {
+                return null;
+            }
+            return this;
+        }
+
+        /**
+         * @return this, or null if the day is not the last day and the sums must be rebuilt
+         */
+        DatePrefix remove(long day, long cents, boolean lastOfDay) {
+            if (size == 0 || day != days[size - 1]) return null;
+            if (lastOfDay) size--;
+            else sums[size - 1] -= cents;
+            return this;
+        }
+
+        long sumUpTo(long day) {
+            int i = Arrays.binarySearch(days, 0, size, day);
+            if (i < 0) i = -i - 2; // last day before
+            return i < 0 ? 0 : sums[i];
+        }
+    }
+
+    /**
+     * Transactions in insertion order in an append-only array. Removed transactions leave an
+     * empty slot, and a Fenwick tree over the occupied slots finds the slot of the k-th
+     * transaction in O(log n), so a page does not depend on the transactions before it.
+     * A page is read slot by slot and jumps over each run of empty slots with the tree, so it
+     * costs O(log n + limit) without removals in its range and O(limit log n) at most.
+     * The array is compacted once more than half of the slots are empty.
+     */
+    static final class InsertionOrder {
+
+        private Transaction[] slots = new Transaction[16];
+
+        /**
+         * Fenwick tree (1-based) counting the occupied slots; entry i covers the slots
+         * (i - lowbit(i), i].
+         */
+        private int[] tree = new int[17];
+
+        /**
+         * Slot of each transaction, for removal.
+         */
+        private final HashMap<Transaction, Integer> positions = new HashMap<>();
+
+        /**
+         * Number of used slots, including empty ones.
+         */
+        private int used;
+
+        void add(Transaction transaction) {
+            if (used == slots.length) {
+                slots = Arrays.copyOf(slots, used * 2);
+                tree = Arrays.copyOf(tree, used * 2 + 1);
+            }
+            slots[used] = transaction;
+            positions.put(transaction, used);
+            // the new node covers itself and the nodes below it within its range
+            int node = ++used;
+            int count = 1;
+            for (int child = node - 1; child > node - (node & -node); child -= child & -child) count += tree[child];
+            tree[node] = count;
+        }
+
+        void remove(Transaction transaction) {
+            int slot = positions.remove(transaction);
+            slots[slot] = null;
+            for (int node = slot + 1; node <= used; node += node & -node) tree[node]--;
+            int size = positions.size();
+            if (used - size > 16 && used - size > size) compact();
+        }
+
+        List<Transaction> page(int offset, int limit) {
+            int size = positions.size();
+            List<Transaction> result = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+            if (offset >= size || limit == 0) return result;
+            int slot = select(offset);
+            for (int index = offset; ; ) {
+                result.add(slots[slot]);
+                if (result.size() == limit || ++index == size) return result;
+                // the next slot holds the next transaction unless a run of removed ones starts there
+                if (slots[++slot] == null) slot = select(index);
+            }
+        }
+
+        /**
+         * @param k the index of a transaction, less than the number of transactions
+         * @return the slot of the k-th transaction in insertion order
+         */
+        private int select(int k) {
+            int node = 0;
+            for (int step = Integer.highestOneBit(used); step > 0; step >>= 1) {
+                int next = node + step;
+                if (next <= used && tree[next] <= k) {
+                    node = next;
+                    k -= tree[next];
+                }
+            }
+            return node;
+        }
+
+        private void compact() {
+            Transaction[] live = new Transaction[positions.size()];
+            int count = 0;
+            for (int slot = 0; slot < used; slot++) {
+                if (slots[slot] != null) live[count++] = slots[slot];
+            }
+            slots = new Transaction[Math.max(16, Integer.highestOneBit(Math.max(1, count)) * 2)];
+            tree = new int[slots.length + 1];
+            positions.clear();
+            used = 0;
+            for (Transaction transaction : live) add(transaction);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bookkeeping for the accounts a {@link PrivateBank} holds in memory.
+ * <p>
+ * The cache counts hits, misses (account loads) and evictions, and tracks how many transactions
+ * are resident. If a budget is configured, the least recently used accounts are unloaded until the
+ * resident transactions fit into the budget again. Only clean accounts are evicted, i.e. accounts
+ * whose mutations have all been written; they are reloaded from their files on the next access.
+ * <p>
+ * Recency is tracked without a shared lock: an access only stamps {@link Account#lastAccess}, and
+ * eviction orders the resident accounts by their stamps when it runs. The order is approximate
+ * under concurrency, which is good enough for choosing victims and keeps reads of different
+ * accounts independent.
+ * <p>
+ * Eviction never blocks: a candidate whose lock is held by another thread is skipped.
+ */
+class AccountCache {
+
+    /**
+     * Maximum number of resident transactions, 0 for no limit.
+     */
+    private final long maxTransactions;
+
+    /**
+     * Resident accounts by name; only maintained with a budget.
+     */
+    private final Map<String, Account> resident = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes evictions, so two threads do not pick the same victims.
+     */
+    private final Object evictionLock = new Object();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong residentTransactions = new AtomicLong();
+
+    /**
+     * Creates the cache bookkeeping.
+     *
+     * @param maxTransactions the budget in resident transactions, 0 for no limit
+     */
+    AccountCache(long maxTransactions) {
+        this.maxTransactions = maxTransactions;
+    }
+
+    /**
+     * Records an access to an account that was already in memory.
+     *
+     * @param acc the accessed account
+     */
+    void recordHit(Account acc) {
+        hits.incrementAndGet();
+        if (maxTransactions > 0) acc.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Registers an account that has just become resident.
+     *
+     * @param acc  the account, holding its write lock
+     * @param miss true if the account was loaded from disk, false if it was newly created
+     */
+    void admit(Account acc, boolean miss) {
+        if (miss) misses.incrementAndGet();
+        residentTransactions.addAndGet(acc.transactions.size());
+        if (maxTransactions > 0) {
+            acc.lastAccess = System.nanoTime();
+            resident.put(acc.name, acc);
+        }
+    }
+
+    /**
+     * Unregisters a resident account that is being deleted.
+     *
+     * @param acc the account, holding its write lock
+     */
+    void forget(Account acc) {
+        residentTransactions.addAndGet(-acc.transactions.size());
+        resident.remove(acc.name, acc);
+    }
+
+    /**
+     * Records a change in the number of transactions of a resident account.
+     *
+     * @param delta the number of added (positive) or removed (negative) transactions
+     */
+    void resize(long delta) {
+        residentTransactions.addAndGet(delta);
+    }
+
+    /**
+     * Unloads least recently used clean accounts until the budget is met or no further
+     * account can be evicted.
+     *
+     * @param keep an account that must stay resident (typically the one just accessed), or null
+     */
+    void evict(Account keep) {
+        if (maxTransactions <= 0 || residentTransactions.get() <= maxTransactions) return;
+        synchronized (evictionLock) {
+            // the stamps are copied first, so concurrent accesses cannot break the sort
+            List<Map.Entry<Account, Long>> candidates = new ArrayList<>(resident.size());
+            for (Account acc : resident.values()) candidates.add(Map.entry(acc, acc.lastAccess));
+            candidates.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+            for (Map.Entry<Account, Long> entry : candidates) {
+                if (residentTransactions.get() <= maxTransactions) break;
+                Account candidate = entry.getKey();
+                if (candidate == keep || !candidate.lock.writeLock().tryLock()) continue;
+                try {
+                    // a hold count above one means this thread was already using the account
+                    if (candidate.lock.getWriteHoldCount() > 1 || !candidate.loaded || !candidate.isClean()) continue;
+                    residentTransactions.addAndGet(-candidate.transactions.size());
+                    candidate.unload();
+                    resident.remove(candidate.name, candidate);
+                    evictions.incrementAndGet();
+                } finally {
+                    candidate.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param loadedAccounts the number of accounts currently in memory
+     * @return a snapshot of the counters
+     */
+    CacheStatistics statistics(int loadedAccounts) {
+        return new CacheStatistics(hits.get(), misses.get(), evictions.get(), loadedAccounts, residentTransactions.get());
+    }
+}
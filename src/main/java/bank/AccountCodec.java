@@ -0,0 +1,33 @@
+package bank;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Encodes the transactions of one account into an account file and back.
+ * <p>
+ * Implementations are stateless and thread-safe; the available codecs are selected
+ * through {@link StorageFormat}.
+ */
+interface AccountCodec {
+
+    /**
+     * Writes the transactions to the stream. The stream is flushed but not closed.
+     *
+     * @param transactions the transactions in insertion order
+     * @param out          the destination
+     * @throws IOException if writing fails
+     */
+    void write(Collection<Transaction> transactions, OutputStream out) throws IOException;
+
+    /**
+     * Reads all transactions from the stream. The stream is not closed.
+     *
+     * @param in           the source
+     * @param transactions the collection receiving the transactions in file order
+     * @throws IOException if reading fails or the content is invalid
+     */
+    void read(InputStream in, Collection<Transaction> transactions) throws IOException;
+}
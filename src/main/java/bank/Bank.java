@@ -2,7 +2,13 @@ package bank;
 
 import bank.exceptions.*;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Interface for a generic bank.
@@ -34,6 +40,21 @@ public interface Bank {
     void createAccount(String account, List<Transaction> transactions)
             throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException;
 
+    /**
+     * Deletes an account with all its transactions, including the data persisted for it.
+     * <p>
+     * The default implementation does not support deleting accounts and throws
+     * {@link UnsupportedOperationException}.
+     *
+     * @param account the name of the account
+     * @throws AccountDoesNotExistException  if the account does not exist
+     * @throws IOException                   if an error occurs while deleting the account's files
+     * @throws UnsupportedOperationException if the bank cannot delete accounts
+     */
+    default void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        throw new UnsupportedOperationException("Deleting accounts is not supported");
+    }
+
     /**
      * Adds a transaction to an existing account.
      *
@@ -47,6 +68,63 @@ public interface Bank {
     void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException;
 
+    /**
+     * Adds many transactions to an existing account in one operation. The source is consumed
+     * once, element by element, so it can be a lazily produced sequence. Either all
+     * transactions are added or, if one of them is rejected, none.
+     * <p>
+     * The default implementation calls {@link #addTransaction(String, Transaction)} for each
+     * transaction and removes the added ones again if one fails.
+     *
+     * @param account      the name of the account
+     * @param transactions the transactions to add
+     * @return the number of added transactions
+     * @throws TransactionAlreadyExistException if a transaction already exists in the account or occurs twice
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if validation of transaction attributes fails
+     * @throws IOException                      if an error occurs while saving the changes to the file system
+     */
+    default int addTransactions(String account, Iterable<? extends Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        List<Transaction> added = new ArrayList<>();
+        try {
+            for (Transaction t : transactions) {
+                addTransaction(account, t);
+                added.add(t);
+            }
+        } catch (TransactionAlreadyExistException | AccountDoesNotExistException | TransactionAttributeException
+                 | IOException | RuntimeException e) {
+            for (int i = added.size() - 1; i >= 0; i--) {
+                try {
+                    removeTransaction(account, added.get(i));
+                } catch (TransactionDoesNotExistException | AccountDoesNotExistException | IOException
+                         | RuntimeException rollback) {
+                    e.addSuppressed(rollback);
+                }
+            }
+            throw e;
+        }
+        return added.size();
+    }
+
+    /**
+     * Adds the transactions of a stream, see {@link #addTransactions(String, Iterable)}.
+     *
+     * @param account      the name of the account
+     * @param transactions the transactions to add; the stream is consumed
+     * @return the number of added transactions
+     * @throws TransactionAlreadyExistException if a transaction already exists in the account or occurs twice
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if validation of transaction attributes fails
+     * @throws IOException                      if an error occurs while saving the changes to the file system
+     */
+    default int addTransactions(String account, Stream<? extends Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        Stream<Transaction> typed = transactions.map(Transaction.class::cast);
+        Iterable<Transaction> source = typed::iterator;
+        return addTransactions(account, source);
+    }
+
     /**
      * Removes a transaction from an existing account.
      *
@@ -76,6 +154,27 @@ public interface Bank {
      */
     double getAccountBalance(String account);
 
+    /**
+     * Calculates the balance of an account at the end of a day: the sum of the values of all
+     * transactions dated up to and including that day. Transactions without a valid
+     * {@code dd.MM.yyyy} date are not included.
+     * <p>
+     * The default implementation scans a snapshot of the account.
+     *
+     * @param account the name of the account
+     * @param date    the day
+     * @return the balance as of the day, 0 for an unknown account
+     */
+    default double getBalanceAsOf(String account, LocalDate date) {
+        long lastDay = date.toEpochDay();
+        long cents = 0;
+        for (Transaction t : getTransactionsView(account)) {
+            long day = t.getEpochDay();
+            if (day != TransactionDates.UNDATED && day <= lastDay) cents += t.calculateCents();
+        }
+        return Money.toUnits(cents);
+    }
+
     /**
      * Retrieves all transactions for a specific account.
      *
@@ -84,6 +183,99 @@ public interface Bank {
      */
     List<Transaction> getTransactions(String account);
 
+    /**
+     * Retrieves all transactions of an account as an immutable snapshot. Unlike
+     * {@link #getTransactions(String)} the list cannot be modified, which lets implementations
+     * share it between callers instead of copying it. Later mutations of the account are not
+     * visible in a snapshot that was already returned.
+     * <p>
+     * The default implementation wraps {@link #getTransactions(String)}.
+     *
+     * @param account the name of the account
+     * @return an unmodifiable list of all transactions, empty for an unknown account
+     */
+    default List<Transaction> getTransactionsView(String account) {
+        return Collections.unmodifiableList(getTransactions(account));
+    }
+
+    /**
+     * Streams the transactions of an account in insertion order, for callers that walk them once.
+     *
+     * @param account the name of the account
+     * @return a sequential stream over a snapshot of the transactions
+     */
+    default Stream<Transaction> streamTransactions(String account) {
+        return getTransactionsView(account).stream();
+    }
+
+    /**
+     * Performs an action for every transaction of an account in insertion order. The action
+     * runs on a snapshot, so it may modify the bank.
+     *
+     * @param account the name of the account
+     * @param action  the action to perform
+     */
+    default void forEachTransaction(String account, Consumer<? super Transaction> action) {
+        getTransactionsView(account).forEach(action);
+    }
+
+    /**
+     * Retrieves one page of the transactions of an account in insertion order.
+     * <p>
+     * The default implementation cuts the page from a full snapshot of the account.
+     *
+     * @param account the name of the account
+     * @param offset  index of the first transaction of the page
+     * @param limit   maximum number of transactions on the page
+     * @return the transactions of the page, empty if the offset is past the end or the account is unknown
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    default List<Transaction> getTransactions(String account, int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        return new ArrayList<>(Paging.slice(getTransactionsView(account), offset, limit));
+    }
+
+    /**
+     * Retrieves the transactions of an account dated between two days, both inclusive, ordered
+     * by date. Transactions of the same day keep their insertion order; transactions without a
+     * valid {@code dd.MM.yyyy} date are never included.
+     *
+     * @param account the name of the account
+     * @param from    the first day
+     * @param to      the last day
+     * @return the matching transactions, empty for an unknown account
+     * @throws IllegalArgumentException if from is after to
+     */
+    default List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to) {
+        return getTransactionsBetween(account, from, to, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves one page of {@link #getTransactionsBetween(String, LocalDate, LocalDate)}.
+     * <p>
+     * The default implementation filters and sorts a full snapshot of the account.
+     *
+     * @param account the name of the account
+     * @param from    the first day
+     * @param to      the last day
+     * @param offset  number of matching transactions to skip
+     * @param limit   maximum number of transactions to return
+     * @return the matching transactions of the page
+     * @throws IllegalArgumentException if from is after to, or offset or limit is negative
+     */
+    default List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to, int offset, int limit) {
+        Paging.checkRange(from, to);
+        Paging.checkPage(offset, limit);
+        long fromDay = from.toEpochDay(), toDay = to.toEpochDay();
+        List<Transaction> matching = new ArrayList<>();
+        for (Transaction t : getTransactionsView(account)) {
+            long day = t.getEpochDay();
+            if (day >= fromDay && day <= toDay) matching.add(t);
+        }
+        matching.sort(Comparator.comparingLong(Transaction::getEpochDay));
+        return new ArrayList<>(Paging.slice(matching, offset, limit));
+    }
+
     /**
      * Retrieves transactions for an account, sorted by calculated amount.
      *
@@ -0,0 +1,298 @@
+package bank;
+
+import bank.exceptions.CorruptAccountFileException;
+import bank.exceptions.TransactionAttributeException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary account file format.
+ * <p>
+ * Layout (all fixed-width numbers big-endian):
+ * <pre>
+ * header:  int magic "BKAC" | byte version | int record count
+ * record:  varint length | payload of that length
+ * payload: byte type tag | string date | zigzag varlong amount in cents | string description
+ *          Payment:  double incomingInterest | double outgoingInterest
+ *          Transfer: string sender | string recipient   (also Incoming-/OutgoingTransfer)
+ * string:  varint 0 = null, 1 = new string (varint byte length + UTF-8 bytes),
+ *          n &gt;= 2 = the (n - 2)th new string of the file
+ * </pre>
+ * Repeated senders, recipients, descriptions and dates are therefore stored only once per
+ * file. Because the string table spans records, records cannot be skipped; the length prefix
+ * is used to validate that each record was decoded completely. Records are limited to
+ * {@link #MAX_RECORD_SIZE} bytes, so a corrupt length cannot make the reader allocate more.
+ */
+final class BinaryAccountCodec implements AccountCodec {
+
+    /**
+     * File signature, the ASCII characters "BKAC".
+     */
+    static final int MAGIC = 0x424B4143;
+
+    /**
+     * Current format version; files with a higher version are rejected.
+     */
+    static final int VERSION = 1;
+
+    static final byte PAYMENT = 1;
+    static final byte TRANSFER = 2;
+    static final byte INCOMING_TRANSFER = 3;
+    static final byte OUTGOING_TRANSFER = 4;
+
+    /**
+     * Maximum size of a record payload in bytes (16 MiB).
+     */
+    static final int MAX_RECORD_SIZE = 1 << 24;
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+
+    @Override
+    public void write(Collection<Transaction> transactions, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(transactions.size());
+
+        Map<String, Integer> strings = new HashMap<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(buffer);
+        int count = 0;
+        for (Transaction transaction : transactions) {
+            buffer.reset();
+            writeRecord(record, transaction, strings);
+            if (buffer.size() > MAX_RECORD_SIZE) throw new IOException("Transaction too large: " + buffer.size() + " bytes");
+            writeVarLong(data, buffer.size());
+            buffer.writeTo(data);
+            count++;
+        }
+        if (count != transactions.size()) {
+            throw new ConcurrentModificationException("Transactions changed while writing");
+        }
+        data.flush();
+    }
+
+    private static void writeRecord(DataOutputStream out, Transaction t, Map<String, Integer> strings)
+            throws IOException {
+        out.writeByte(tagOf(t));
+        writeString(out, t.getDate(), strings);
+        writeVarLong(out, (t.amountCents << 1) ^ (t.amountCents >> 63));
+        writeString(out, t.description, strings);
+        if (t instanceof Payment) {
+            Payment payment = (Payment) t;
+            out.writeDouble(payment.getIncomingInterest());
+            out.writeDouble(payment.getOutgoingInterest());
+        } else {
+            Transfer transfer = (Transfer) t;
+            writeString(out, transfer.getSender(), strings);
+            writeString(out, transfer.getRecipient(), strings);
+        }
+    }
+
+    /**
+     * @param t a transaction
+     * @return the type tag of its class
+     * @throws IllegalArgumentException if the class has no type tag
+     */
+    static byte tagOf(Transaction t) {
+        Class<?> type = t.getClass();
+        if (type == Payment.class) return PAYMENT;
+        if (type == Transfer.class) return TRANSFER;
+        if (type == IncomingTransfer.class) return INCOMING_TRANSFER;
+        if (type == OutgoingTransfer.class) return OUTGOING_TRANSFER;
+        throw new IllegalArgumentException("Unknown transaction type: " + type.getName());
+    }
+
+    private static void writeString(DataOutputStream out, String s, Map<String, Integer> strings) throws IOException {
+        if (s == null) {
+            writeVarLong(out, NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarLong(out, index + 2L);
+            return;
+        }
+        strings.put(s, strings.size());
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, NEW_STRING);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Creates a transaction from decoded attributes. The amount is set exactly in cents,
+     * bypassing the rounding of the {@code double} constructors.
+     *
+     * @param tag              the type tag
+     * @param date             the date
+     * @param amountCents      the amount in cents
+     * @param description      the description
+     * @param incomingInterest the incoming interest (Payment only)
+     * @param outgoingInterest the outgoing interest (Payment only)
+     * @param sender           the sender (transfers only)
+     * @param recipient        the recipient (transfers only)
+     * @return the transaction
+     * @throws IOException if the tag is unknown or the attributes are invalid
+     */
+    static Transaction create(byte tag, String date, long amountCents, String description,
+                              double incomingInterest, double outgoingInterest, String sender, String recipient)
+            throws IOException {
+        Transaction transaction;
+        try {
+            switch (tag) {
+                case PAYMENT:
+                    Payment payment = new Payment(date, 0, description);
+                    payment.setIncomingInterest(incomingInterest);
+                    payment.setOutgoingInterest(outgoingInterest);
+                    transaction = payment;
+                    break;
+                case TRANSFER: transaction = new Transfer(date, 0, description, sender, recipient); break;
+                case INCOMING_TRANSFER: transaction = new IncomingTransfer(date, 0, description, sender, recipient); break;
+                case OUTGOING_TRANSFER: transaction = new OutgoingTransfer(date, 0, description, sender, recipient); break;
+                default: throw new IOException("Unknown type tag " + tag);
+            }
+        } catch (TransactionAttributeException e) {
+            throw new IOException("Invalid transaction attributes", e);
+        }
+        transaction.amountCents = amountCents;
+        return transaction;
+    }
+
+    @Override
+    public void read(InputStream in, Collection<Transaction> transactions) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int magic;
+        try {
+            magic = data.readInt();
+        } catch (EOFException e) {
+            return;
+        }
+        if (magic != MAGIC) throw new IOException("Not a binary account file");
+        int version = data.readUnsignedByte();
+        if (version > VERSION) throw new IOException("Unsupported binary account file version " + version);
+        int count = data.readInt();
+        if (count < 0) throw new IOException("Invalid record count " + count);
+
+        RecordReader record = new RecordReader();
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            record.fill(data, readVarLong(data), i);
+            transactions.add(record.readTransaction(strings));
+            if (record.position != record.limit) throw new IOException("Corrupt record " + i);
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Decodes the payload of one record from a reusable buffer.
+     */
+    private static final class RecordReader {
+        private byte[] buffer = new byte[256];
+        private int position;
+        private int limit;
+
+        /**
+         * Reads the payload of a record. The buffer only grows as the bytes actually arrive,
+         * so a length beyond the end of the file fails before a large buffer is allocated.
+         *
+         * @throws CorruptAccountFileException if the length is out of range or the file ends early
+         */
+        void fill(DataInputStream in, long length, int record) throws IOException {
+            if (length < 0 || length > MAX_RECORD_SIZE) {
+                throw new CorruptAccountFileException("Invalid length " + length + " of record " + record);
+            }
+            int size = (int) length;
+            int read = 0;
+            try {
+                while (read < size) {
+                    if (read == buffer.length) buffer = Arrays.copyOf(buffer, Math.min(size, buffer.length * 2));
+                    int chunk = Math.min(size, buffer.length) - read;
+                    in.readFully(buffer, read, chunk);
+                    read += chunk;
+                }
+            } catch (EOFException e) {
+                throw new CorruptAccountFileException("Record " + record + " is truncated", e);
+            }
+            position = 0;
+            limit = size;
+        }
+
+        Transaction readTransaction(List<String> strings) throws IOException {
+            byte tag = readByte();
+            String date = readString(strings);
+            long zigzag = readVarLong();
+            long amountCents = (zigzag >>> 1) ^ -(zigzag & 1);
+            String description = readString(strings);
+            if (tag == PAYMENT) {
+                double incomingInterest = readDouble();
+                double outgoingInterest = readDouble();
+                return create(tag, date, amountCents, description, incomingInterest, outgoingInterest, null, null);
+            }
+            String sender = readString(strings);
+            String recipient = readString(strings);
+            return create(tag, date, amountCents, description, 0, 0, sender, recipient);
+        }
+
+        private void require(int bytes) throws IOException {
+            if (limit - position < bytes) throw new IOException("Record truncated");
+        }
+
+        private byte readByte() throws IOException {
+            require(1);
+            return buffer[position++];
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private double readDouble() throws IOException {
+            require(8);
+            long bits = 0;
+            for (int i = 0; i < 8; i++) bits = (bits << 8) | (buffer[position++] & 0xFF);
+            return Double.longBitsToDouble(bits);
+        }
+
+        private String readString(List<String> strings) throws IOException {
+            long reference = readVarLong();
+            if (reference == NULL_STRING) return null;
+            if (reference == NEW_STRING) {
+                long length = readVarLong();
+                if (length > limit - position) throw new IOException("Record truncated");
+                String s = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+                position += (int) length;
+                strings.add(s);
+                return s;
+            }
+            long index = reference - 2;
+            if (index >= strings.size()) throw new IOException("Invalid string reference " + reference);
+            return strings.get((int) index);
+        }
+    }
+}
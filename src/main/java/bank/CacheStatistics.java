@@ -0,0 +1,49 @@
+package bank;
+
+/**
+ * Immutable snapshot of the account cache counters of a {@link PrivateBank}.
+ * Used to size the cache budget (see {@link PersistenceOptions#setMaxCachedTransactions(long)}).
+ */
+public class CacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int loadedAccounts;
+    private final long residentTransactions;
+
+    /**
+     * @param hits                 accesses to accounts that were in memory
+     * @param misses               accesses that had to load the account from disk
+     * @param evictions            accounts unloaded to stay within the budget
+     * @param loadedAccounts       accounts currently in memory
+     * @param residentTransactions transactions currently in memory
+     */
+    public CacheStatistics(long hits, long misses, long evictions, int loadedAccounts, long residentTransactions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.loadedAccounts = loadedAccounts;
+        this.residentTransactions = residentTransactions;
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public int getLoadedAccounts() { return loadedAccounts; }
+    public long getResidentTransactions() { return residentTransactions; }
+
+    /**
+     * @return the share of accesses served from memory, 0 if there were no accesses
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+                ", loadedAccounts=" + loadedAccounts + ", residentTransactions=" + residentTransactions + "}";
+    }
+}
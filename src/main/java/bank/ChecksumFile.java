@@ -0,0 +1,93 @@
+package bank;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * CRC32 sidecar of an account file ("Konto [Name].json.crc").
+ * <p>
+ * The sidecar holds the checksum of the file being installed, followed by the checksums of
+ * the files it replaces. It is replaced before the account file itself, so a crash between the two
+ * renames leaves an old account file that still matches the previous checksum. Account files
+ * without a sidecar (written by older versions) are not verified.
+ */
+final class ChecksumFile {
+
+    private static final String EXTENSION = ".crc";
+
+    private ChecksumFile() {
+    }
+
+    /**
+     * @param file an account file
+     * @return the path of its sidecar
+     */
+    static Path of(Path file) {
+        return file.resolveSibling(file.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Reads the checksums accepted for an account file.
+     *
+     * @param file the account file
+     * @return the accepted checksums (current first), or null if the file has no sidecar
+     * @throws IOException if the sidecar cannot be read
+     */
+    static long[] read(Path file) throws IOException {
+        Path sidecar = of(file);
+        if (!Files.exists(sidecar)) return null;
+        List<String> lines = Files.readAllLines(sidecar, StandardCharsets.US_ASCII);
+        long[] checksums = new long[lines.size()];
+        try {
+            for (int i = 0; i < checksums.length; i++) checksums[i] = Long.parseLong(lines.get(i).trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checksum file " + sidecar, e);
+        }
+        return checksums;
+    }
+
+    /**
+     * Atomically installs the sidecar for a new version of an account file, keeping the
+     * current checksums as accepted previous ones.
+     *
+     * @param file     the account file (not yet replaced)
+     * @param checksum the CRC32 of its new content
+     * @throws IOException if writing fails
+     */
+    static void write(Path file, long checksum) throws IOException {
+        long[] current = null;
+        try {
+            current = read(file);
+        } catch (IOException e) {
+            // an unreadable sidecar is simply replaced
+        }
+        StringBuilder content = new StringBuilder(Long.toHexString(checksum)).append('\n');
+        // two previous values, so an earlier interrupted replacement is still covered
+        for (int i = 0; current != null && i < Math.min(current.length, 2); i++) {
+            content.append(Long.toHexString(current[i])).append('\n');
+        }
+        Path sidecar = of(file);
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.US_ASCII);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param accepted the accepted checksums, or null if the file is not verified
+     * @param checksum the checksum of the content that was read
+     * @return true if the content is accepted
+     */
+    static boolean matches(long[] accepted, long checksum) {
+        if (accepted == null) return true;
+        for (long value : accepted) {
+            if (value == checksum) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,198 @@
+package bank;
+
+import bank.exceptions.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory implementation of the {@link Bank} interface with a columnar layout: each account
+ * is a {@link ColumnarTransactionTable} of primitive arrays and dictionary-encoded strings instead
+ * of a collection of {@link Transaction} objects.
+ * <p>
+ * This needs a fraction of the heap of {@link PrivateBank} for large histories, and balances and
+ * type filters run as loops over primitive arrays. {@link Transaction} objects are created only
+ * for the transactions a query returns, so each query result is a fresh copy; callers that keep
+ * reading whole accounts are better served by {@link PrivateBank}.
+ * <p>
+ * The bank does not persist anything; it is meant for analysis and for data that is loaded
+ * from elsewhere, e.g. with {@link #createAccount(String, List)}. It is thread-safe, each
+ * account table synchronizes its own operations.
+ */
+public class ColumnarBank implements Bank {
+
+    private final String name;
+    private final double incomingInterest;
+    private final double outgoingInterest;
+
+    /**
+     * The account tables by account name.
+     */
+    private final Map<String, ColumnarTransactionTable> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty bank.
+     *
+     * @param name             the name of the bank
+     * @param incomingInterest the interest rate for incoming payments
+     * @param outgoingInterest the interest rate for outgoing payments
+     */
+    public ColumnarBank(String name, double incomingInterest, double outgoingInterest) {
+        this.name = name;
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+    }
+
+    private ColumnarTransactionTable requireAccount(String account) throws AccountDoesNotExistException {
+        ColumnarTransactionTable table = accounts.get(account);
+        if (table == null) {
+            throw new AccountDoesNotExistException("Account not found: " + account);
+        }
+        return table;
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException {
+        if (accounts.putIfAbsent(account, new ColumnarTransactionTable()) != null) {
+            throw new AccountAlreadyExistsException("Account already exists: " + account);
+        }
+    }
+
+    @Override
+    public void createAccount(String account, List<Transaction> transactions)
+            throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException {
+        ColumnarTransactionTable table = new ColumnarTransactionTable();
+        for (Transaction t : transactions) {
+            if (t.getAmountCents() < 0) throw new TransactionAttributeException("Invalid negative amount in creation");
+            if (!table.append(t)) throw new TransactionAlreadyExistException("Duplicate transaction detected");
+        }
+        if (accounts.putIfAbsent(account, table) != null) {
+            throw new AccountAlreadyExistsException("Account already exists: " + account);
+        }
+    }
+
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException {
+        if (accounts.remove(account) == null) {
+            throw new AccountDoesNotExistException("Account not found: " + account);
+        }
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
+        ColumnarTransactionTable table = requireAccount(account);
+        Payment.applyBankInterest(transaction, incomingInterest, outgoingInterest);
+        if (!table.append(transaction)) {
+            throw new TransactionAlreadyExistException("Transaction already exists");
+        }
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction)
+            throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        if (!requireAccount(account).remove(transaction)) {
+            throw new TransactionDoesNotExistException("Transaction not found");
+        }
+    }
+
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table != null && table.contains(transaction);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sums the value column of the account; no transaction is materialized.
+     */
+    @Override
+    public double getAccountBalance(String account) {
+        return Money.toUnits(getAccountBalanceCents(account));
+    }
+
+    /**
+     * Returns the exact balance of an account in cents.
+     *
+     * @param account the name of the account
+     * @return the sum of all calculated transaction values in cents, 0 for an unknown account
+     */
+    public long getAccountBalanceCents(String account) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? 0 : table.balanceCents();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Answered by binary search in prefix sums kept over the day column, like {@link PrivateBank};
+     * no transaction is materialized.
+     */
+    @Override
+    public double getBalanceAsOf(String account, LocalDate date) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? 0 : Money.toUnits(table.balanceAsOf(date.toEpochDay()));
+    }
+
+    /**
+     * @param account the name of the account
+     * @return the number of transactions of the account, 0 for an unknown account
+     */
+    public int getTransactionCount(String account) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? 0 : table.size();
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? new ArrayList<>() : table.readAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the transactions of the page are materialized.
+     */
+    @Override
+    public List<Transaction> getTransactions(String account, int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? new ArrayList<>() : table.readPage(offset, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The range is selected from the day column; only the transactions of the page are materialized.
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to, int offset, int limit) {
+        Paging.checkRange(from, to);
+        Paging.checkPage(offset, limit);
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? new ArrayList<>() : table.readBetween(from.toEpochDay(), to.toEpochDay(), offset, limit);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? new ArrayList<>() : table.readSorted(asc);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        ColumnarTransactionTable table = accounts.get(account);
+        return table == null ? new ArrayList<>() : table.readBySign(positive);
+    }
+
+    public String getName() { return name; }
+    public double getIncomingInterest() { return incomingInterest; }
+    public double getOutgoingInterest() { return outgoingInterest; }
+
+    @Override
+    public String toString() {
+        return "ColumnarBank{name='" + name + "', accounts=" + new TreeSet<>(accounts.keySet()) + "}";
+    }
+}
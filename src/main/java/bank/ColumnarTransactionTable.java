@@ -0,0 +1,407 @@
+package bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Column-oriented storage of the transactions of one account.
+ * <p>
+ * Every attribute is kept in its own primitive array, indexed by row:
+ * <pre>
+ * types        byte  type tag (see {@link BinaryAccountCodec#tagOf(Transaction)})
+ * amounts      long  amount in cents
+ * values       long  calculated value in cents, 0 for removed rows
+ * days         int   epoch day, or {@link #UNDATED_BASE} + dictionary code of an unparseable date
+ * descriptions int   dictionary code
+ * senders      int   dictionary code (transfers; code of null for payments)
+ * recipients   int   dictionary code (transfers; code of null for payments)
+ * rates        int   dictionary code of the interest pair (payments; -1 for transfers)
+ * hashes       int   {@link Transaction#hashCode()}, for the duplicate index
+ * </pre>
+ * Strings repeat a lot within an account, so they are stored once in a {@link Dictionary}.
+ * Balances and sign filters are tight loops over {@code values}; {@link Transaction} objects
+ * are only created for the rows a query returns.
+ * <p>
+ * Removal clears the value of the row and marks it in {@link #removed}, which keeps the
+ * insertion order and the row numbers stable. Once more than half of the rows are removed
+ * the table is compacted. All methods are synchronized.
+ * <p>
+ * For balance-as-of queries the table keeps prefix sums of the values over the distinct days,
+ * answered by binary search. Appends and removals on the last day update them in place; any
+ * other change drops them until the next query rebuilds them in O(n log n).
+ */
+final class ColumnarTransactionTable {
+
+    /**
+     * Smallest epoch day of a parseable date (1 January of year 0).
+     */
+    private static final int MIN_EPOCH_DAY = (int) LocalDate.of(0, 1, 1).toEpochDay();
+
+    /**
+     * Base of the {@code days} entries of rows with an unparseable date; far below {@link #MIN_EPOCH_DAY}.
+     */
+    private static final int UNDATED_BASE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int[] descriptions = new int[INITIAL_CAPACITY];
+    private int[] senders = new int[INITIAL_CAPACITY];
+    private int[] recipients = new int[INITIAL_CAPACITY];
+    private int[] rates = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private BitSet removed = new BitSet();
+
+    private final Dictionary<String> strings = new Dictionary<>();
+    private final Dictionary<List<Double>> interests = new Dictionary<>();
+
+    /**
+     * Open addressing hash index over the rows: each slot holds row + 1, or 0 if empty.
+     * Removed rows stay in the index until the next compaction and are skipped by lookups.
+     */
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Distinct epoch days of the dated rows in ascending order, and the sum of the values up to
+     * and including each day; valid for the first {@link #prefixSize} entries. Null if they
+     * must be rebuilt.
+     */
+    private long[] prefixDays, prefixSums;
+    private int prefixSize;
+
+    /**
+     * Number of rows, including removed ones.
+     */
+    private int rows;
+
+    /**
+     * Number of live rows.
+     */
+    private int size;
+
+    /**
+     * Appends a transaction unless an equal one is stored.
+     *
+     * @param transaction the transaction
+     * @return false if an equal transaction is already stored
+     */
+    synchronized boolean append(Transaction transaction) {
+        if (find(transaction) >= 0) return false;
+        if (rows == types.length) grow();
+        int row = rows++;
+        types[row] = BinaryAccountCodec.tagOf(transaction);
+        amounts[row] = transaction.getAmountCents();
+        values[row] = transaction.calculateCents();
+        long day = transaction.getEpochDay();
+        days[row] = day == TransactionDates.UNDATED ? UNDATED_BASE + strings.encode(transaction.getDate()) : (int) day;
+        descriptions[row] = strings.encode(transaction.getDescription());
+        if (transaction instanceof Transfer) {
+            Transfer transfer = (Transfer) transaction;
+            senders[row] = strings.encode(transfer.getSender());
+            recipients[row] = strings.encode(transfer.getRecipient());
+            rates[row] = -1;
+        } else {
+            Payment payment = (Payment) transaction;
+            senders[row] = recipients[row] = strings.encode(null);
+            rates[row] = interests.encode(List.of(payment.getIncomingInterest(), payment.getOutgoingInterest()));
+        }
+        hashes[row] = transaction.hashCode();
+        if (rows * 2 > index.length) reindex();
+        else insert(row);
+        size++;
+        if (day != TransactionDates.UNDATED) updatePrefix(day, values[row]);
+        return true;
+    }
+
+    /**
+     * Removes the row of a transaction.
+     *
+     * @param transaction the transaction
+     * @return false if no equal transaction is stored
+     */
+    synchronized boolean remove(Transaction transaction) {
+        int row = find(transaction);
+        if (row < 0) return false;
+        removed.set(row);
+        if (days[row] >= MIN_EPOCH_DAY) updatePrefix(days[row], -values[row]);
+        values[row] = 0;
+        size--;
+        if (rows - size > INITIAL_CAPACITY && rows - size > size) compact();
+        return true;
+    }
+
+    /**
+     * @param transaction the transaction
+     * @return true if an equal transaction is stored
+     */
+    synchronized boolean contains(Transaction transaction) {
+        return find(transaction) >= 0;
+    }
+
+    /**
+     * @return the number of live rows
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Sums the value column; removed rows contribute 0.
+     *
+     * @return the balance in cents
+     */
+    synchronized long balanceCents() {
+        long sum = 0;
+        for (int row = 0; row < rows; row++) sum += values[row];
+        return sum;
+    }
+
+    /**
+     * Sums the values of the rows dated up to a day by binary search in the prefix sums,
+     * rebuilding them first if a change dropped them.
+     *
+     * @param lastDay the epoch day
+     * @return the balance at the end of the day in cents
+     */
+    synchronized long balanceAsOf(long lastDay) {
+        if (prefixDays == null) buildPrefix();
+        int i = Arrays.binarySearch(prefixDays, 0, prefixSize, lastDay);
+        if (i < 0) i = -i - 2; // last day before
+        return i < 0 ? 0 : prefixSums[i];
+    }
+
+    /**
+     * Applies a value change on a day to the prefix sums if the day is the last one or later,
+     * otherwise drops them.
+     */
+    private void updatePrefix(long day, long cents) {
+        if (prefixDays == null) return;
+        if (prefixSize > 0 && day == prefixDays[prefixSize - 1]) {
+            prefixSums[prefixSize - 1] += cents;
+        } else if (prefixSize == 0 || day > prefixDays[prefixSize - 1]) {
+            if (prefixSize == prefixDays.length) {
+                prefixDays = Arrays.copyOf(prefixDays, prefixSize * 2);
+                prefixSums = Arrays.copyOf(prefixSums, prefixSize * 2);
+            }
+            prefixDays[prefixSize] = day;
+            prefixSums[prefixSize] = (prefixSize == 0 ? 0 : prefixSums[prefixSize - 1]) + cents;
+            prefixSize++;
+        } else {
+            prefixDays = prefixSums = null;
+        }
+    }
+
+    /**
+     * Sorts the live dated rows by day (packed as day and row in one long) and sums their values.
+     */
+    private void buildPrefix() {
+        long[] keys = new long[size];
+        int count = 0;
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            if (days[row] >= MIN_EPOCH_DAY) keys[count++] = ((long) days[row] << 32) | row;
+        }
+        Arrays.sort(keys, 0, count);
+        prefixDays = new long[Math.max(count, INITIAL_CAPACITY)];
+        prefixSums = new long[prefixDays.length];
+        prefixSize = 0;
+        for (int i = 0; i < count; i++) {
+            updatePrefix(keys[i] >> 32, values[(int) keys[i]]);
+        }
+    }
+
+    /**
+     * @return all live transactions in insertion order
+     */
+    synchronized List<Transaction> readAll() {
+        return readPage(0, size);
+    }
+
+    /**
+     * Materializes a page of the live rows in insertion order.
+     *
+     * @param offset number of live rows to skip
+     * @param limit  maximum number of transactions
+     * @return the transactions of the page
+     */
+    synchronized List<Transaction> readPage(int offset, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        int skip = offset;
+        for (int row = removed.nextClearBit(0); row < rows && result.size() < limit; row = removed.nextClearBit(row + 1)) {
+            if (skip > 0) skip--;
+            else result.add(materialize(row));
+        }
+        return result;
+    }
+
+    /**
+     * Materializes only the rows whose value has the requested sign.
+     *
+     * @param positive true for values above zero, false for values below zero
+     * @return the matching transactions in insertion order
+     */
+    synchronized List<Transaction> readBySign(boolean positive) {
+        List<Transaction> result = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            long cents = values[row];
+            if (positive ? cents > 0 : cents < 0) result.add(materialize(row));
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the live rows by the value column and materializes them in that order.
+     *
+     * @param asc true for ascending order
+     * @return the sorted transactions; equal values keep their insertion order
+     */
+    synchronized List<Transaction> readSorted(boolean asc) {
+        List<Integer> order = liveRows();
+        Comparator<Integer> byValue = Comparator.comparingLong(row -> values[row]);
+        order.sort(asc ? byValue : byValue.reversed());
+        return materialize(order);
+    }
+
+    /**
+     * Selects the rows between two days from the day column, sorts them by day and
+     * materializes a page of them.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay   last epoch day, inclusive
+     * @param offset  number of matching rows to skip
+     * @param limit   maximum number of transactions
+     * @return the matching transactions in date order; rows of the same day keep their insertion order
+     */
+    synchronized List<Transaction> readBetween(long fromDay, long toDay, int offset, int limit) {
+        List<Integer> order = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            int day = days[row];
+            if (day >= MIN_EPOCH_DAY && day >= fromDay && day <= toDay && !removed.get(row)) order.add(row);
+        }
+        order.sort(Comparator.comparingInt(row -> days[row]));
+        return materialize(Paging.slice(order, offset, limit));
+    }
+
+    private List<Integer> liveRows() {
+        List<Integer> live = new ArrayList<>(size);
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) live.add(row);
+        return live;
+    }
+
+    private List<Transaction> materialize(List<Integer> order) {
+        List<Transaction> result = new ArrayList<>(order.size());
+        for (int row : order) result.add(materialize(row));
+        return result;
+    }
+
+    private Transaction materialize(int row) {
+        int day = days[row];
+        String date = day < MIN_EPOCH_DAY ? strings.decode(day - UNDATED_BASE) : TransactionDates.format(day);
+        double incomingInterest = 0, outgoingInterest = 0;
+        if (rates[row] >= 0) {
+            List<Double> pair = interests.decode(rates[row]);
+            incomingInterest = pair.get(0);
+            outgoingInterest = pair.get(1);
+        }
+        try {
+            return BinaryAccountCodec.create(types[row], date, amounts[row], strings.decode(descriptions[row]),
+                    incomingInterest, outgoingInterest, strings.decode(senders[row]), strings.decode(recipients[row]));
+        } catch (IOException e) {
+            // the row was encoded from a valid transaction
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int find(Transaction transaction) {
+        int hash = transaction.hashCode();
+        int mask = index.length - 1;
+        for (int slot = mix(hash) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int row = index[slot] - 1;
+            if (hashes[row] == hash && !removed.get(row) && transaction.equals(materialize(row))) return row;
+        }
+        return -1;
+    }
+
+    private void insert(int row) {
+        int mask = index.length - 1;
+        int slot = mix(hashes[row]) & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+        index[slot] = row + 1;
+    }
+
+    private void reindex() {
+        int capacity = Integer.highestOneBit(Math.max(rows, INITIAL_CAPACITY)) * 4;
+        index = new int[capacity];
+        for (int row = 0; row < rows; row++) {
+            if (!removed.get(row)) insert(row);
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        values = Arrays.copyOf(values, capacity);
+        days = Arrays.copyOf(days, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        senders = Arrays.copyOf(senders, capacity);
+        recipients = Arrays.copyOf(recipients, capacity);
+        rates = Arrays.copyOf(rates, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /**
+     * Moves the live rows to the front of every column, keeping their order, and rebuilds the
+     * hash index. Dictionary entries are kept, since other rows may still use them.
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            types[target] = types[row];
+            amounts[target] = amounts[row];
+            values[target] = values[row];
+            days[target] = days[row];
+            descriptions[target] = descriptions[row];
+            senders[target] = senders[row];
+            recipients[target] = recipients[row];
+            rates[target] = rates[row];
+            hashes[target] = hashes[row];
+            target++;
+        }
+        rows = target;
+        removed = new BitSet();
+        reindex();
+    }
+
+    /**
+     * Dictionary encoding: every distinct value (including null) is stored once and referenced
+     * by its code, the index into {@link #values}.
+     */
+    private static final class Dictionary<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private final Map<T, Integer> codes = new HashMap<>();
+
+        int encode(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        T decode(int code) {
+            return values.get(code);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * CSV ledger (RFC 4180): a header line followed by one line per transaction.
+ * <pre>
+ * CLASSNAME,date,amount,description,incomingInterest,outgoingInterest,sender,recipient
+ * Payment,01.01.2024,-12.35,Rent,0.05,0.1,,
+ * IncomingTransfer,02.01.2024,10.00,"Gift, late",,,Oma,Alice
+ * </pre>
+ * The type tags are those of {@link TransactionSerializer}. Amounts are exact decimals with two
+ * places. Fields that contain a comma, a quote or a line break are quoted. An empty field is
+ * read as null, a quoted empty field ({@code ""}) as an empty string.
+ */
+final class CsvLedgerCodec implements LedgerCodec {
+
+    static final String HEADER = "CLASSNAME,date,amount,description,incomingInterest,outgoingInterest,sender,recipient";
+
+    private static final int FIELDS = 8;
+
+    @Override
+    public void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    @Override
+    public void write(Writer out, Transaction transaction) throws IOException {
+        String tag = TransactionSerializer.tagOf(transaction);
+        if (tag == null) throw new IOException("Unknown transaction type: " + transaction.getClass().getName());
+        out.write(tag);
+        out.write(',');
+        writeField(out, transaction.getDate());
+        out.write(',');
+        out.write(BigDecimal.valueOf(transaction.getAmountCents(), 2).toPlainString());
+        out.write(',');
+        writeField(out, transaction.getDescription());
+        out.write(',');
+        if (transaction instanceof Payment) {
+            Payment payment = (Payment) transaction;
+            out.write(Double.toString(payment.getIncomingInterest()));
+            out.write(',');
+            out.write(Double.toString(payment.getOutgoingInterest()));
+            out.write(",,");
+        } else {
+            Transfer transfer = (Transfer) transaction;
+            out.write(",,");
+            writeField(out, transfer.getSender());
+            out.write(',');
+            writeField(out, transfer.getRecipient());
+        }
+        out.write('\n');
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public Iterator<Transaction> read(BufferedReader in) throws IOException {
+        RecordParser parser = new RecordParser(in);
+        List<String> header = parser.next();
+        if (header != null && !String.join(",", header).equals(HEADER)) {
+            throw new IOException("Unexpected CSV header: " + String.join(",", header));
+        }
+        return new Iterator<>() {
+            private Transaction next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (next == null) {
+                        List<String> fields = parser.next();
+                        if (fields != null) next = toTransaction(fields, parser.recordLine);
+                    }
+                    return next != null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Transaction transaction = next;
+                next = null;
+                return transaction;
+            }
+        };
+    }
+
+    private static Transaction toTransaction(List<String> fields, int line) throws IOException {
+        if (fields.size() != FIELDS) {
+            throw new IOException("Expected " + FIELDS + " fields but found " + fields.size() + " at line " + line);
+        }
+        try {
+            Transaction transaction = TransactionSerializer.create(fields.get(0), fields.get(1),
+                    Money.toCents(fields.get(2)), fields.get(3), parseRate(fields.get(4)), parseRate(fields.get(5)),
+                    fields.get(6), fields.get(7));
+            if (transaction == null) throw new IOException("Unknown class " + fields.get(0) + " at line " + line);
+            return transaction;
+        } catch (NullPointerException | ArithmeticException | NumberFormatException | TransactionAttributeException e) {
+            throw new IOException("Invalid record at line " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static double parseRate(String field) {
+        return field == null ? 0 : Double.parseDouble(field);
+    }
+
+    /**
+     * Splits the input into records of fields; quoted fields may span several lines.
+     */
+    private static final class RecordParser {
+
+        private final BufferedReader in;
+        private final StringBuilder field = new StringBuilder();
+        private int line = 1;
+
+        /**
+         * Line on which the last returned record started, for error messages.
+         */
+        int recordLine;
+
+        RecordParser(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the fields of the next non-empty record, or null at the end of the input
+         */
+        List<String> next() throws IOException {
+            int c = in.read();
+            while (c == '\n' || c == '\r') {
+                if (c == '\n') line++;
+                c = in.read();
+            }
+            if (c < 0) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>(FIELDS);
+            while (true) {
+                field.setLength(0);
+                boolean quoted = c == '"';
+                if (quoted) {
+                    while (true) {
+                        c = in.read();
+                        if (c < 0) throw new IOException("Unterminated quoted field at line " + recordLine);
+                        if (c == '"') {
+                            c = in.read();
+                            if (c != '"') break;
+                        } else if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        field.append((char) c);
+                        c = in.read();
+                    }
+                }
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                if (c == ',') {
+                    c = in.read();
+                    continue;
+                }
+                if (c == '\r') {
+                    // \r\n or a lone \r ends the record
+                    in.mark(1);
+                    if (in.read() != '\n') in.reset();
+                    c = '\n';
+                }
+                if (c == '\n') line++;
+                else if (c >= 0) throw new IOException("Unexpected character after quoted field at line " + line);
+                return fields;
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background pipeline that persists dirty accounts in batches ("group commit").
+ * <p>
+ * Callers mark an account as dirty with {@link #submit(String)} and receive a future that
+ * completes once the account has been written and forced to disk. All accounts that became
+ * dirty within one commit window are flushed together by a single writer thread, so several
+ * mutations of the same account cost one write, and the number of disk round trips grows
+ * with the number of batches instead of the number of mutations.
+ * <p>
+ * A batch is started when the oldest pending mutation is older than the commit window, when
+ * the maximum batch size is reached, or when a caller requests a barrier via {@link #flush()}.
+ */
+class GroupCommitter implements Closeable {
+
+    /**
+     * Callback that writes one account durably. Always called from the writer thread.
+     */
+    interface Flusher {
+        void flush(String account) throws IOException;
+    }
+
+    private final Flusher flusher;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Thread writer;
+
+    /**
+     * Guards all fields below.
+     */
+    private final Object monitor = new Object();
+
+    /**
+     * Dirty accounts of the next batch, each with the futures waiting for it.
+     */
+    private Map<String, List<CompletableFuture<Void>>> dirty = new LinkedHashMap<>();
+
+    /**
+     * Futures of {@link #flush()} callers, completed after the next batch.
+     */
+    private List<CompletableFuture<Void>> barriers = new ArrayList<>();
+
+    private int pendingMutations;
+    private long firstPendingNanos;
+    private boolean flushRequested;
+    private boolean closed;
+    private boolean stopped;
+    private long batches;
+    private long flushedAccounts;
+
+    /**
+     * Creates and starts a group committer.
+     *
+     * @param name         a name used for the writer thread
+     * @param flusher      the callback that writes an account
+     * @param windowMillis the maximum time a mutation waits before its batch is started
+     * @param maxBatchSize the number of pending mutations that starts a batch immediately
+     */
+    GroupCommitter(String name, Flusher flusher, long windowMillis, int maxBatchSize) {
+        this.flusher = flusher;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::run, "group-commit-" + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Marks an account as dirty.
+     *
+     * @param account the name of the account
+     * @return a future that completes when the account has been written durably
+     * @throws IllegalStateException if the committer was closed
+     */
+    CompletableFuture<Void> submit(String account) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (monitor) {
+            if (closed) throw new IllegalStateException("Group committer is closed");
+            markPending();
+            dirty.computeIfAbsent(account, k -> new ArrayList<>()).add(future);
+            pendingMutations++;
+        }
+        return future;
+    }
+
+    /**
+     * Durability barrier: blocks until every mutation submitted before the call is on disk.
+     *
+     * @throws IOException if a batch containing one of those mutations failed
+     */
+    void flush() throws IOException {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        synchronized (monitor) {
+            if (stopped) return;
+            markPending();
+            barriers.add(barrier);
+            flushRequested = true;
+            monitor.notifyAll();
+        }
+        await(barrier);
+    }
+
+    /**
+     * Flushes all pending mutations and stops the writer thread.
+     *
+     * @throws IOException if the final batch failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            if (closed) return;
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (monitor) {
+                closed = true;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of batches written so far
+     */
+    long getBatchCount() {
+        synchronized (monitor) {
+            return batches;
+        }
+    }
+
+    /**
+     * @return the number of account writes performed so far
+     */
+    long getFlushedAccountCount() {
+        synchronized (monitor) {
+            return flushedAccounts;
+        }
+    }
+
+    /**
+     * Waits for a future and unwraps an {@link IOException} failure.
+     *
+     * @param future the future to wait for
+     * @throws IOException if the future failed with an I/O error
+     */
+    static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (java.util.concurrent.CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private void markPending() {
+        if (dirty.isEmpty() && barriers.isEmpty()) {
+            firstPendingNanos = System.nanoTime();
+            monitor.notifyAll();
+        }
+        if (pendingMutations + 1 >= maxBatchSize) monitor.notifyAll();
+    }
+
+    private void run() {
+        while (true) {
+            Map<String, List<CompletableFuture<Void>>> batch;
+            List<CompletableFuture<Void>> batchBarriers;
+            synchronized (monitor) {
+                try {
+                    while (dirty.isEmpty() && barriers.isEmpty() && !closed) monitor.wait();
+                    if (dirty.isEmpty() && barriers.isEmpty()) {
+                        stopped = true;
+                        return;
+                    }
+                    long deadline = firstPendingNanos + windowNanos;
+                    while (!flushRequested && !closed && pendingMutations < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) break;
+                        TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    stopped = true;
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                batch = dirty;
+                batchBarriers = barriers;
+                dirty = new LinkedHashMap<>();
+                barriers = new ArrayList<>();
+                pendingMutations = 0;
+                flushRequested = false;
+            }
+
+            IOException failure = null;
+            for (Map.Entry<String, List<CompletableFuture<Void>>> entry : batch.entrySet()) {
+                try {
+                    flusher.flush(entry.getKey());
+                    entry.getValue().forEach(f -> f.complete(null));
+                } catch (IOException | RuntimeException e) {
+                    IOException error = e instanceof IOException ? (IOException) e
+                            : new IOException("Writing account failed: " + entry.getKey(), e);
+                    entry.getValue().forEach(f -> f.completeExceptionally(error));
+                    if (failure == null) failure = error;
+                    else failure.addSuppressed(error);
+                }
+            }
+            for (CompletableFuture<Void> barrier : batchBarriers) {
+                if (failure == null) barrier.complete(null);
+                else barrier.completeExceptionally(failure);
+            }
+            synchronized (monitor) {
+                batches++;
+                flushedAccounts += batch.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bank;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * The classic account file format: a pretty-printed JSON array of transactions, written with
+ * the shared {@link TransactionJson} components. Transactions are streamed one by one, so the
+ * document is never held in memory as a whole.
+ */
+final class JsonAccountCodec implements AccountCodec {
+
+    private static final Gson GSON = TransactionJson.PRETTY;
+
+    @Override
+    public void write(Collection<Transaction> transactions, OutputStream out) throws IOException {
+        // buffer characters, so they are encoded in large chunks instead of per JSON token
+        JsonWriter json = GSON.newJsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        json.beginArray();
+        for (Transaction transaction : transactions) {
+            TransactionJson.ADAPTER.write(json, transaction);
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    /**
+     * Reads a JSON array of transactions element by element. An empty document or a JSON
+     * null is treated as an empty account, like {@link Gson#fromJson(Reader, java.lang.reflect.Type)} does.
+     */
+    @Override
+    public void read(InputStream in, Collection<Transaction> transactions) throws IOException {
+        JsonReader json = GSON.newJsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            JsonToken token;
+            try {
+                token = json.peek();
+            } catch (EOFException e) {
+                return;
+            }
+            if (token == JsonToken.NULL) return;
+            json.beginArray();
+            while (json.hasNext()) {
+                Transaction transaction = GSON.fromJson(json, Transaction.class);
+                if (transaction != null) transactions.add(transaction);
+            }
+            json.endArray();
+        } catch (JsonParseException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
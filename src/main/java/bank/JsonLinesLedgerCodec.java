@@ -0,0 +1,69 @@
+package bank;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * JSON lines ledger: one transaction per line, encoded like a record of the account files and
+ * journals (with the "CLASSNAME" type tag of {@link TransactionSerializer}). Blank lines are skipped.
+ */
+final class JsonLinesLedgerCodec implements LedgerCodec {
+
+    @Override
+    public void writeHeader(Writer out) {
+        // JSON lines have no header
+    }
+
+    @Override
+    public void write(Writer out, Transaction transaction) throws IOException {
+        JsonWriter json = TransactionJson.COMPACT.newJsonWriter(out);
+        try {
+            TransactionJson.ADAPTER.write(json, transaction);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        out.write('\n');
+    }
+
+    @Override
+    public Iterator<Transaction> read(BufferedReader in) {
+        return new Iterator<>() {
+            private Transaction next;
+            private int lineNumber;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    String line;
+                    while (next == null && (line = in.readLine()) != null) {
+                        lineNumber++;
+                        if (line.isBlank()) continue;
+                        try {
+                            next = TransactionJson.ADAPTER.fromJson(line);
+                        } catch (JsonParseException | IllegalStateException e) {
+                            throw new IOException("Invalid record at line " + lineNumber + ": " + e.getMessage(), e);
+                        }
+                    }
+                    return next != null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Transaction transaction = next;
+                next = null;
+                return transaction;
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package bank;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Encodes transactions as a ledger file, one record at a time, and decodes them lazily.
+ * <p>
+ * Unlike an {@link AccountCodec}, which reads and writes whole accounts, a ledger codec never
+ * holds more than one record, so files of any size can be written and read with bounded memory.
+ * Implementations are stateless and thread-safe; the available codecs are selected through
+ * {@link LedgerFormat}.
+ */
+interface LedgerCodec {
+
+    /**
+     * Writes the start of a ledger file, e.g. a header line.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    void writeHeader(Writer out) throws IOException;
+
+    /**
+     * Writes one transaction as a record.
+     *
+     * @param out         the destination
+     * @param transaction the transaction
+     * @throws IOException if writing fails or the transaction type has no type tag
+     */
+    void write(Writer out, Transaction transaction) throws IOException;
+
+    /**
+     * Reads the start of a ledger file and returns an iterator that decodes one record per
+     * call of {@link Iterator#next()}. Errors while iterating are thrown as
+     * {@link UncheckedIOException}. The reader is not closed.
+     *
+     * @param in the source
+     * @return the transactions in file order
+     * @throws IOException if the start of the file cannot be read or is invalid
+     */
+    Iterator<Transaction> read(BufferedReader in) throws IOException;
+}
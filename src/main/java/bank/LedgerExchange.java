@@ -0,0 +1,257 @@
+package bank;
+
+import bank.exceptions.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming import and export of the transactions of a {@link Bank} in a {@link LedgerFormat}.
+ * <p>
+ * Ledger files are read and written one record at a time: an export reads the account in pages
+ * of {@link #PAGE_SIZE} transactions, an import feeds the records lazily into
+ * {@link Bank#addTransactions(String, Iterable)}, so the bank persists each account once.
+ * The memory used by the transfer itself is therefore bounded; how much of an account the
+ * bank keeps in memory is up to the bank implementation. Several accounts are processed in
+ * parallel, each by exactly one thread.
+ * <p>
+ * Accounts should not be modified while they are exported, otherwise pages may overlap or
+ * skip transactions.
+ */
+public final class LedgerExchange {
+
+    /**
+     * Number of transactions per export page, and between two progress reports.
+     */
+    static final int PAGE_SIZE = 10_000;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the progress of an import or export. Called from the worker threads, so
+     * implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * A listener that ignores all reports.
+         */
+        ProgressListener NONE = (account, transactions, done) -> { };
+
+        /**
+         * @param account      the account being transferred
+         * @param transactions the number of transactions of the account processed so far
+         * @param done         true for the last report of the account
+         */
+        void progress(String account, long transactions, boolean done);
+    }
+
+    @FunctionalInterface
+    private interface AccountTask {
+        long run(String account) throws IOException;
+    }
+
+    private LedgerExchange() {
+    }
+
+    /**
+     * Writes the transactions of one account to a ledger file in insertion order. An existing
+     * file is overwritten.
+     *
+     * @param bank     the bank
+     * @param account  the name of the account
+     * @param file     the file to write
+     * @param format   the ledger format
+     * @param listener receives the progress
+     * @return the number of exported transactions
+     * @throws IOException if writing fails
+     */
+    public static long exportAccount(Bank bank, String account, Path file, LedgerFormat format, ProgressListener listener)
+            throws IOException {
+        LedgerCodec codec = format.codec();
+        long exported = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                IO_BUFFER_SIZE)) {
+            codec.writeHeader(out);
+            List<Transaction> page;
+            do {
+                page = bank.getTransactions(account, (int) exported, PAGE_SIZE);
+                for (Transaction transaction : page) codec.write(out, transaction);
+                exported += page.size();
+                if (page.size() == PAGE_SIZE) listener.progress(account, exported, false);
+            } while (page.size() == PAGE_SIZE);
+        }
+        listener.progress(account, exported, true);
+        return exported;
+    }
+
+    /**
+     * Exports several accounts into a directory, one file per account named by
+     * {@link LedgerFormat#fileName(String)}.
+     *
+     * @param bank        the bank
+     * @param accounts    the names of the accounts to export
+     * @param directory   the target directory; created if missing
+     * @param format      the ledger format
+     * @param parallelism the number of accounts exported at the same time
+     * @param listener    receives the progress
+     * @return the number of exported transactions over all accounts
+     * @throws IOException if writing a file fails
+     */
+    public static long exportAccounts(Bank bank, Collection<String> accounts, Path directory, LedgerFormat format,
+                                      int parallelism, ProgressListener listener) throws IOException {
+        Files.createDirectories(directory);
+        return runParallel(new ArrayList<>(accounts), parallelism,
+                account -> exportAccount(bank, account, directory.resolve(format.fileName(account)), format, listener));
+    }
+
+    /**
+     * Adds the transactions of a ledger file to an account, which is created if it does not
+     * exist. The transactions are added with {@link Bank#addTransactions(String, Iterable)}, so
+     * the bank's interest rates apply to payments, and either all of them are added or none.
+     * If the import fails, an account created by it is deleted again; a bank that does not
+     * support {@link Bank#deleteAccount(String)} keeps it without transactions.
+     *
+     * @param bank     the bank
+     * @param account  the name of the account
+     * @param file     the file to read
+     * @param format   the ledger format
+     * @param listener receives the progress
+     * @return the number of imported transactions
+     * @throws IOException if reading fails, the file is invalid or the bank rejects a transaction
+     */
+    public static long importAccount(Bank bank, String account, Path file, LedgerFormat format, ProgressListener listener)
+            throws IOException {
+        boolean created = false;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8),
+                IO_BUFFER_SIZE)) {
+            Iterator<Transaction> records = format.codec().read(in);
+            long[] read = {0};
+            Iterable<Transaction> counted = () -> new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                @Override
+                public Transaction next() {
+                    Transaction transaction = records.next();
+                    if (++read[0] % PAGE_SIZE == 0) listener.progress(account, read[0], false);
+                    return transaction;
+                }
+            };
+            try {
+                bank.createAccount(account);
+                created = true;
+            } catch (AccountAlreadyExistsException e) {
+                // the transactions are added to the existing account
+            }
+            long imported = bank.addTransactions(account, counted);
+            listener.progress(account, imported, true);
+            return imported;
+        } catch (UncheckedIOException e) {
+            throw rollBack(bank, account, created,
+                    new IOException("Cannot import " + file + ": " + e.getCause().getMessage(), e.getCause()));
+        } catch (TransactionAlreadyExistException | AccountDoesNotExistException | TransactionAttributeException e) {
+            throw rollBack(bank, account, created, new IOException("Cannot import " + file + ": " + e.getMessage(), e));
+        } catch (IOException e) {
+            throw rollBack(bank, account, created, e);
+        } catch (RuntimeException e) {
+            throw rollBack(bank, account, created, e);
+        }
+    }
+
+    /**
+     * Deletes the account of a failed import if the import created it.
+     *
+     * @param created true if the import created the account
+     * @param failure the failure of the import
+     * @return the failure, with a failed or unsupported deletion added as suppressed exception
+     */
+    private static <E extends Exception> E rollBack(Bank bank, String account, boolean created, E failure) {
+        if (created) {
+            try {
+                bank.deleteAccount(account);
+            } catch (AccountDoesNotExistException | IOException | UnsupportedOperationException e) {
+                // the bank keeps the account, which holds none of the rejected transactions
+                failure.addSuppressed(e);
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Imports every ledger file of a directory into the account named by the file.
+     *
+     * @param bank        the bank
+     * @param directory   the directory of the ledger files
+     * @param format      the ledger format
+     * @param parallelism the number of accounts imported at the same time
+     * @param listener    receives the progress
+     * @return the number of imported transactions over all accounts
+     * @throws IOException if a file cannot be read or imported
+     */
+    public static long importAccounts(Bank bank, Path directory, LedgerFormat format, int parallelism,
+                                      ProgressListener listener) throws IOException {
+        File[] files = directory.toFile().listFiles();
+        if (files == null) throw new FileNotFoundException("Not a directory: " + directory);
+        List<String> accounts = new ArrayList<>();
+        for (File file : files) {
+            String account = format.accountName(file.getName());
+            if (account != null) accounts.add(account);
+        }
+        Collections.sort(accounts);
+        return runParallel(accounts, parallelism,
+                account -> importAccount(bank, account, directory.resolve(format.fileName(account)), format, listener));
+    }
+
+    /**
+     * Runs a task per account on a bounded pool of worker threads and waits for all of them.
+     *
+     * @return the sum of the task results
+     * @throws IOException the first failure in account order
+     */
+    private static long runParallel(List<String> accounts, int parallelism, AccountTask task) throws IOException {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, accounts.size())),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "bank-ledger-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            List<Future<Long>> results = new ArrayList<>(accounts.size());
+            for (String account : accounts) results.add(pool.submit(() -> task.run(account)));
+            long total = 0;
+            for (Future<Long> result : results) {
+                try {
+                    total += result.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IOException("Ledger transfer failed", cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted during ledger transfer");
+                }
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
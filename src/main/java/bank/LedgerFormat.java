@@ -0,0 +1,58 @@
+package bank;
+
+/**
+ * Interchange formats for moving transactions in and out of a {@link Bank}, see {@link LedgerExchange}.
+ * <p>
+ * Each account is stored in a file named "Konto [Name]" followed by the extension of the
+ * format. Both formats use the "CLASSNAME" type tags of the account files.
+ */
+public enum LedgerFormat {
+
+    /**
+     * Comma separated values with a header line (".csv"), see {@link CsvLedgerCodec}.
+     */
+    CSV(".csv", new CsvLedgerCodec()),
+
+    /**
+     * One JSON object per line (".jsonl"), see {@link JsonLinesLedgerCodec}.
+     */
+    JSON_LINES(".jsonl", new JsonLinesLedgerCodec());
+
+    private final String extension;
+    private final LedgerCodec codec;
+
+    LedgerFormat(String extension, LedgerCodec codec) {
+        this.extension = extension;
+        this.codec = codec;
+    }
+
+    /**
+     * @return the file name extension including the dot, e.g. ".csv"
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param account the name of the account
+     * @return the file name of the account ledger, e.g. "Konto Alice.csv"
+     */
+    public String fileName(String account) {
+        return "Konto " + account + extension;
+    }
+
+    /**
+     * Extracts the account name from a ledger file name.
+     *
+     * @param fileName the file name
+     * @return the account name, or null if the file is no ledger in this format
+     */
+    String accountName(String fileName) {
+        if (!fileName.startsWith("Konto ") || !fileName.endsWith(extension)) return null;
+        return fileName.substring(6, fileName.length() - extension.length());
+    }
+
+    LedgerCodec codec() {
+        return codec;
+    }
+}
@@ -0,0 +1,62 @@
+package bank;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing report of the startup of a {@link PrivateBank}: how many account files were found
+ * and loaded, with which parallelism, and how long listing and loading took.
+ */
+public class LoadReport {
+
+    private final int accountCount;
+    private final int loadedAccountCount;
+    private final long transactionCount;
+    private final int quarantinedAccountCount;
+    private final int parallelism;
+    private final long listingNanos;
+    private final long loadingNanos;
+
+    /**
+     * @param accountCount            account files found in the directory
+     * @param loadedAccountCount      accounts whose transactions were read at startup
+     * @param transactionCount        transactions read at startup
+     * @param quarantinedAccountCount accounts quarantined because their files were corrupt
+     * @param parallelism             number of loader threads used
+     * @param listingNanos            time spent listing the directory
+     * @param loadingNanos            time spent reading the account files
+     */
+    public LoadReport(int accountCount, int loadedAccountCount, long transactionCount, int quarantinedAccountCount,
+                      int parallelism, long listingNanos, long loadingNanos) {
+        this.accountCount = accountCount;
+        this.loadedAccountCount = loadedAccountCount;
+        this.transactionCount = transactionCount;
+        this.quarantinedAccountCount = quarantinedAccountCount;
+        this.parallelism = parallelism;
+        this.listingNanos = listingNanos;
+        this.loadingNanos = loadingNanos;
+    }
+
+    public int getAccountCount() { return accountCount; }
+    public int getLoadedAccountCount() { return loadedAccountCount; }
+    public long getTransactionCount() { return transactionCount; }
+    public int getQuarantinedAccountCount() { return quarantinedAccountCount; }
+    public int getParallelism() { return parallelism; }
+    public long getListingMillis() { return TimeUnit.NANOSECONDS.toMillis(listingNanos); }
+    public long getLoadingMillis() { return TimeUnit.NANOSECONDS.toMillis(loadingNanos); }
+    public long getTotalMillis() { return TimeUnit.NANOSECONDS.toMillis(listingNanos + loadingNanos); }
+
+    /**
+     * @return transactions read per second of loading time, 0 if nothing was loaded
+     */
+    public double getTransactionsPerSecond() {
+        return loadingNanos == 0 ? 0.0 : transactionCount * 1e9 / loadingNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport{accounts=" + accountCount + ", loaded=" + loadedAccountCount +
+                ", transactions=" + transactionCount + ", quarantined=" + quarantinedAccountCount +
+                ", parallelism=" + parallelism + ", listingMillis=" + getListingMillis() +
+                ", loadingMillis=" + getLoadingMillis() + "}";
+    }
+}
@@ -0,0 +1,249 @@
+package bank;
+
+import bank.exceptions.*;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An implementation of the {@link Bank} interface for very large accounts, backed by one
+ * memory-mapped log file per account ("Konto [Name].log", see {@link MappedTransactionLog}).
+ * <p>
+ * Unlike {@link PrivateBank}, the transactions are not kept on the heap: balances and the
+ * type filter are computed directly from the mapped records, and {@link Transaction} objects
+ * are only created for the transactions a query returns. The operating system's page cache
+ * takes the role of the in-memory account state. Every mutation is a single append (or an
+ * in-place removal flag), so there is no snapshot rewrite and no journal.
+ * <p>
+ * The bank is thread-safe; each account log synchronizes its own operations.
+ * Changes reach the storage device on {@link #flush()} and {@link #close()}.
+ */
+public class MappedBank implements Bank, Closeable {
+
+    private static final String FILE_EXTENSION = ".log";
+
+    private final String name;
+    private final double incomingInterest;
+    private final double outgoingInterest;
+    private final String directoryName;
+
+    /**
+     * The open account logs by account name.
+     */
+    private final Map<String, MappedTransactionLog> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the bank and maps all existing account logs of the directory.
+     *
+     * @param name             the name of the bank
+     * @param incomingInterest the interest rate for incoming payments
+     * @param outgoingInterest the interest rate for outgoing payments
+     * @param directoryName    the directory of the account logs
+     * @throws IOException if a log cannot be opened
+     */
+    public MappedBank(String name, double incomingInterest, double outgoingInterest, String directoryName)
+            throws IOException {
+        this.name = name;
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+        this.directoryName = directoryName;
+        File[] files = new File(directoryName).listFiles();
+        if (files == null) return;
+        try {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.startsWith("Konto ") && fileName.endsWith(FILE_EXTENSION)) {
+                    String account = fileName.substring(6, fileName.length() - FILE_EXTENSION.length());
+                    accounts.put(account, new MappedTransactionLog(file.toPath()));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private MappedTransactionLog openAccount(String account) throws AccountAlreadyExistsException, IOException {
+        synchronized (accounts) {
+            if (accounts.containsKey(account)) {
+                throw new AccountAlreadyExistsException("Account already exists: " + account);
+            }
+            File dir = new File(directoryName);
+            if (!dir.exists()) dir.mkdirs();
+            MappedTransactionLog log = new MappedTransactionLog(Paths.get(directoryName, "Konto " + account + FILE_EXTENSION));
+            accounts.put(account, log);
+            return log;
+        }
+    }
+
+    private MappedTransactionLog requireAccount(String account) throws AccountDoesNotExistException {
+        MappedTransactionLog log = accounts.get(account);
+        if (log == null) {
+            throw new AccountDoesNotExistException("Account not found: " + account);
+        }
+        return log;
+    }
+
+    @Override
+    public void createAccount(String account) throws AccountAlreadyExistsException, IOException {
+        openAccount(account);
+    }
+
+    @Override
+    public void createAccount(String account, List<Transaction> transactions)
+            throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
+        if (accounts.containsKey(account)) {
+            throw new AccountAlreadyExistsException("Account already exists: " + account);
+        }
+        Set<Transaction> transactionSet = new HashSet<>();
+        for (Transaction t : transactions) {
+            if (t.getAmountCents() < 0) throw new TransactionAttributeException("Invalid negative amount in creation");
+            if (!transactionSet.add(t)) throw new TransactionAlreadyExistException("Duplicate transaction detected");
+        }
+        MappedTransactionLog log = openAccount(account);
+        for (Transaction t : transactions) log.append(t);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The log is unmapped and its file deleted.
+     */
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        MappedTransactionLog log;
+        synchronized (accounts) {
+            log = accounts.remove(account);
+        }
+        if (log == null) {
+            throw new AccountDoesNotExistException("Account not found: " + account);
+        }
+        log.close();
+        Files.deleteIfExists(Paths.get(directoryName, "Konto " + account + FILE_EXTENSION));
+    }
+
+    @Override
+    public void addTransaction(String account, Transaction transaction)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        MappedTransactionLog log = requireAccount(account);
+        Payment.applyBankInterest(transaction, incomingInterest, outgoingInterest);
+        if (!log.append(transaction)) {
+            throw new TransactionAlreadyExistException("Transaction already exists");
+        }
+    }
+
+    @Override
+    public void removeTransaction(String account, Transaction transaction)
+            throws AccountDoesNotExistException, TransactionDoesNotExistException {
+        if (!requireAccount(account).remove(transaction)) {
+            throw new TransactionDoesNotExistException("Transaction not found");
+        }
+    }
+
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        MappedTransactionLog log = accounts.get(account);
+        return log != null && log.contains(transaction);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Scans the calculated values of the mapped records; no transaction is decoded.
+     */
+    @Override
+    public double getAccountBalance(String account) {
+        return Money.toUnits(getAccountBalanceCents(account));
+    }
+
+    /**
+     * Returns the exact balance of an account in cents.
+     *
+     * @param account the name of the account
+     * @return the sum of all calculated transaction values in cents, 0 for an unknown account
+     */
+    public long getAccountBalanceCents(String account) {
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? 0 : log.balanceCents();
+    }
+
+    /**
+     * @param account the name of the account
+     * @return the number of transactions of the account, 0 for an unknown account
+     */
+    public int getTransactionCount(String account) {
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? 0 : log.size();
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? new ArrayList<>() : log.readAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the transactions of the page are decoded, and consecutive pages continue where the
+     * previous one ended, so reading an account page by page walks its log once.
+     */
+    @Override
+    public List<Transaction> getTransactions(String account, int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? new ArrayList<>() : log.read(offset, limit);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? new ArrayList<>() : log.readSorted(asc);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        MappedTransactionLog log = accounts.get(account);
+        return log == null ? new ArrayList<>() : log.readBySign(positive);
+    }
+
+    /**
+     * Forces all account logs to the storage device.
+     */
+    public void flush() {
+        for (MappedTransactionLog log : accounts.values()) log.force();
+    }
+
+    /**
+     * Forces and closes all account logs. The bank must not be used afterwards.
+     *
+     * @throws IOException if closing a log fails
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (MappedTransactionLog log : accounts.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    public String getName() { return name; }
+    public double getIncomingInterest() { return incomingInterest; }
+    public double getOutgoingInterest() { return outgoingInterest; }
+    public String getDirectoryName() { return directoryName; }
+
+    @Override
+    public String toString() {
+        return "MappedBank{name='" + name + "', directory='" + directoryName + "', accounts=" + new TreeSet<>(accounts.keySet()) + "}";
+    }
+}
@@ -0,0 +1,383 @@
+package bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only log of the transactions of one account inside a memory-mapped file.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header (16 bytes): int magic "BKML" | int version | long end of the last record
+ * record: int length | byte type tag | byte flags | short reserved | int hashCode
+ *         | long calculated cents | long amount cents
+ *         | string date | string description
+ *         | Payment: double incomingInterest | double outgoingInterest
+ *         | Transfer: string sender | string recipient
+ * string: int byte length (-1 for null) | UTF-8 bytes
+ * </pre>
+ * The calculated value of every record sits at a fixed offset, so balances and sign filters
+ * are computed by scanning the mapped region without creating {@link Transaction} objects;
+ * records are only decoded for the results that are returned. Removed records are marked
+ * with a flag and skipped. Caching is left to the operating system's page cache.
+ * <p>
+ * A record is written before the end pointer in the header is advanced, so a record that was
+ * only partially written is ignored when the log is opened again. Durability against power
+ * loss requires {@link #force()}. All methods are synchronized; the log size is limited to 2 GB.
+ */
+final class MappedTransactionLog implements Closeable {
+
+    /**
+     * File signature, the ASCII characters "BKML".
+     */
+    static final int MAGIC = 0x424B4D4C;
+
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int END_POSITION = 8;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private static final int TAG = 4;
+    private static final int FLAGS = 5;
+    private static final int HASH = 8;
+    private static final int CALCULATED = 12;
+    private static final int AMOUNT = 20;
+    private static final int PAYLOAD = 28;
+
+    private static final byte REMOVED = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Position after the last record.
+     */
+    private int end;
+
+    /**
+     * Number of records that are not removed.
+     */
+    private int size;
+
+    /**
+     * Positions of the live records by {@link Transaction#hashCode()}, for duplicate checks
+     * without a scan.
+     */
+    private final Map<Integer, List<Integer>> positionsByHash = new HashMap<>();
+
+    /**
+     * Position where the last page ended and the number of live records before it, so that
+     * consecutive pages continue there instead of walking the log from the start.
+     */
+    private int cursorPosition = HEADER_SIZE;
+    private int cursorIndex;
+
+    /**
+     * Opens the log, creating the file if necessary.
+     *
+     * @param path the log file
+     * @throws IOException if the file cannot be mapped or is not a valid log
+     */
+    MappedTransactionLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) throw new IOException("Log too large: " + path);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, INITIAL_CAPACITY));
+            if (fileSize < HEADER_SIZE) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                setEnd(HEADER_SIZE);
+            } else {
+                if (buffer.getInt(0) != MAGIC) throw new IOException("Not a transaction log: " + path);
+                if (buffer.getInt(4) > VERSION) throw new IOException("Unsupported log version: " + path);
+                long storedEnd = buffer.getLong(END_POSITION);
+                if (storedEnd < HEADER_SIZE || storedEnd > fileSize) throw new IOException("Corrupt log header: " + path);
+                end = (int) storedEnd;
+                index();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void index() throws IOException {
+        for (int position = HEADER_SIZE; position < end; ) {
+            int length = buffer.getInt(position);
+            if (length < PAYLOAD || length > end - position) throw new IOException("Corrupt record at " + position + ": " + path);
+            if (!isRemoved(position)) {
+                positionsByHash.computeIfAbsent(buffer.getInt(position + HASH), h -> new ArrayList<>(1)).add(position);
+                size++;
+            }
+            position += length;
+        }
+    }
+
+    private void setEnd(int end) {
+        this.end = end;
+        buffer.putLong(END_POSITION, end);
+    }
+
+    private boolean isRemoved(int position) {
+        return (buffer.get(position + FLAGS) & REMOVED) != 0;
+    }
+
+    /**
+     * @return the number of live transactions
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Appends a transaction unless an equal one is already stored.
+     *
+     * @param transaction the transaction
+     * @return false if an equal transaction is already stored
+     * @throws IOException if the mapping cannot be grown
+     */
+    synchronized boolean append(Transaction transaction) throws IOException {
+        if (find(transaction) >= 0) return false;
+        byte[] record = encode(transaction);
+        ensureCapacity(record.length);
+        int position = end;
+        buffer.put(position, record);
+        setEnd(position + record.length);
+        positionsByHash.computeIfAbsent(transaction.hashCode(), h -> new ArrayList<>(1)).add(position);
+        size++;
+        return true;
+    }
+
+    /**
+     * Marks the record of a transaction as removed.
+     *
+     * @param transaction the transaction
+     * @return false if no equal transaction is stored
+     */
+    synchronized boolean remove(Transaction transaction) {
+        int position = find(transaction);
+        if (position < 0) return false;
+        buffer.put(position + FLAGS, (byte) (buffer.get(position + FLAGS) | REMOVED));
+        if (position < cursorPosition) cursorIndex--;
+        List<Integer> positions = positionsByHash.get(transaction.hashCode());
+        positions.remove(Integer.valueOf(position));
+        if (positions.isEmpty()) positionsByHash.remove(transaction.hashCode());
+        size--;
+        return true;
+    }
+
+    /**
+     * @param transaction the transaction
+     * @return true if an equal transaction is stored
+     */
+    synchronized boolean contains(Transaction transaction) {
+        return find(transaction) >= 0;
+    }
+
+    private int find(Transaction transaction) {
+        List<Integer> positions = positionsByHash.get(transaction.hashCode());
+        if (positions == null) return -1;
+        for (int position : positions) {
+            if (transaction.equals(decode(position))) return position;
+        }
+        return -1;
+    }
+
+    /**
+     * Sums the calculated values directly from the mapped records.
+     *
+     * @return the balance in cents
+     */
+    synchronized long balanceCents() {
+        long sum = 0;
+        for (int position = HEADER_SIZE; position < end; position += buffer.getInt(position)) {
+            if (!isRemoved(position)) sum += buffer.getLong(position + CALCULATED);
+        }
+        return sum;
+    }
+
+    /**
+     * @return all live transactions in insertion order
+     */
+    synchronized List<Transaction> readAll() {
+        List<Transaction> result = new ArrayList<>(size);
+        for (int position = HEADER_SIZE; position < end; position += buffer.getInt(position)) {
+            if (!isRemoved(position)) result.add(decode(position));
+        }
+        return result;
+    }
+
+    /**
+     * Decodes one page of the live transactions in insertion order. The records before the
+     * page are skipped by their length without decoding them, starting at the end of the
+     * previous page if the requested one lies behind it, so reading a log page by page walks
+     * it once.
+     *
+     * @param offset index of the first transaction of the page
+     * @param limit  maximum number of transactions on the page
+     * @return the transactions of the page
+     */
+    synchronized List<Transaction> read(int offset, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        int position = HEADER_SIZE;
+        int index = 0;
+        if (offset >= cursorIndex) {
+            position = cursorPosition;
+            index = cursorIndex;
+        }
+        for (; position < end && result.size() < limit; position += buffer.getInt(position)) {
+            if (isRemoved(position)) continue;
+            if (index++ >= offset) result.add(decode(position));
+        }
+        cursorPosition = position;
+        cursorIndex = index;
+        return result;
+    }
+
+    /**
+     * Decodes only the transactions whose calculated value has the requested sign.
+     *
+     * @param positive true for values above zero, false for values below zero
+     * @return the matching transactions in insertion order
+     */
+    synchronized List<Transaction> readBySign(boolean positive) {
+        List<Transaction> result = new ArrayList<>();
+        for (int position = HEADER_SIZE; position < end; position += buffer.getInt(position)) {
+            if (isRemoved(position)) continue;
+            long cents = buffer.getLong(position + CALCULATED);
+            if (positive ? cents > 0 : cents < 0) result.add(decode(position));
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the record positions by the mapped calculated values and decodes them in that order.
+     *
+     * @param asc true for ascending order
+     * @return the sorted transactions; equal values keep their insertion order
+     */
+    synchronized List<Transaction> readSorted(boolean asc) {
+        List<Integer> positions = new ArrayList<>(size);
+        for (int position = HEADER_SIZE; position < end; position += buffer.getInt(position)) {
+            if (!isRemoved(position)) positions.add(position);
+        }
+        Comparator<Integer> byValue = Comparator.comparingLong(position -> buffer.getLong(position + CALCULATED));
+        positions.sort(asc ? byValue : byValue.reversed());
+        List<Transaction> result = new ArrayList<>(positions.size());
+        for (int position : positions) result.add(decode(position));
+        return result;
+    }
+
+    /**
+     * Forces the mapped content to the storage device.
+     */
+    synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        long required = (long) end + bytes;
+        if (required <= buffer.capacity()) return;
+        long capacity = Math.max(required, 2L * buffer.capacity());
+        if (capacity > Integer.MAX_VALUE) {
+            if (required > Integer.MAX_VALUE) throw new IOException("Log too large: " + path);
+            capacity = Integer.MAX_VALUE;
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static byte[] encode(Transaction t) {
+        byte tag = BinaryAccountCodec.tagOf(t);
+        byte[] date = bytes(t.getDate());
+        byte[] description = bytes(t.description);
+        byte[] sender = null;
+        byte[] recipient = null;
+        int length = PAYLOAD + stringSize(date) + stringSize(description);
+        if (t instanceof Payment) {
+            length += 16;
+        } else {
+            sender = bytes(((Transfer) t).getSender());
+            recipient = bytes(((Transfer) t).getRecipient());
+            length += stringSize(sender) + stringSize(recipient);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).put(tag).put((byte) 0).putShort((short) 0).putInt(t.hashCode())
+                .putLong(t.calculateCents()).putLong(t.amountCents);
+        putString(record, date);
+        putString(record, description);
+        if (t instanceof Payment) {
+            record.putDouble(((Payment) t).getIncomingInterest()).putDouble(((Payment) t).getOutgoingInterest());
+        } else {
+            putString(record, sender);
+            putString(record, recipient);
+        }
+        return record.array();
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer record, byte[] bytes) {
+        if (bytes == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private Transaction decode(int position) {
+        int[] cursor = {position + PAYLOAD};
+        byte tag = buffer.get(position + TAG);
+        long amountCents = buffer.getLong(position + AMOUNT);
+        String date = getString(cursor);
+        String description = getString(cursor);
+        try {
+            if (tag == BinaryAccountCodec.PAYMENT) {
+                double incomingInterest = buffer.getDouble(cursor[0]);
+                double outgoingInterest = buffer.getDouble(cursor[0] + 8);
+                return BinaryAccountCodec.create(tag, date, amountCents, description,
+                        incomingInterest, outgoingInterest, null, null);
+            }
+            String sender = getString(cursor);
+            String recipient = getString(cursor);
+            return BinaryAccountCodec.create(tag, date, amountCents, description, 0, 0, sender, recipient);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt record at " + position + ": " + path, e);
+        }
+    }
+
+    private String getString(int[] cursor) {
+        int length = buffer.getInt(cursor[0]);
+        cursor[0] += 4;
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(cursor[0], bytes);
+        cursor[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
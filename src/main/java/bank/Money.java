@@ -0,0 +1,82 @@
+package bank;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point helpers for money amounts.
+ * <p>
+ * Amounts are stored as a {@code long} number of cents (minor units), which makes sums exact
+ * and allocation free. Interest rates stay {@code double} values between 0 and 1, but are applied
+ * with a resolution of one millionth (ppm) in integer arithmetic. All rounding uses
+ * {@link RoundingMode#HALF_EVEN} ("banker's rounding"), so rounding errors do not accumulate
+ * in one direction over large histories.
+ */
+final class Money {
+
+    /**
+     * Number of cents per currency unit.
+     */
+    static final long CENTS_PER_UNIT = 100;
+
+    /**
+     * Resolution used for interest rates: rates are applied in millionths.
+     */
+    static final long RATE_SCALE = 1_000_000;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in currency units to cents, rounding half-even to the nearest cent.
+     *
+     * @param amount the amount in currency units, e.g. 12.34
+     * @return the amount in cents, e.g. 1234
+     * @throws ArithmeticException if the amount is not finite or too large
+     */
+    static long toCents(double amount) {
+        if (!Double.isFinite(amount)) throw new ArithmeticException("Amount is not a number: " + amount);
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts an exact decimal literal, as found in JSON files, to cents.
+     *
+     * @param amount the decimal literal, e.g. "12.34"
+     * @return the amount in cents, rounded half-even
+     * @throws NumberFormatException if the literal is not a number
+     * @throws ArithmeticException   if the amount is too large
+     */
+    static long toCents(String amount) {
+        return new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts cents back to currency units.
+     *
+     * @param cents the amount in cents
+     * @return the amount in currency units
+     */
+    static double toUnits(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Multiplies an amount by an interest rate and rounds half-even to whole cents,
+     * without floating point arithmetic on the amount.
+     *
+     * @param cents the amount in cents (may be negative)
+     * @param rate  the rate, applied with a resolution of one millionth
+     * @return the interest in cents, with the sign of {@code cents}
+     * @throws ArithmeticException if the intermediate product overflows
+     */
+    static long applyRate(long cents, double rate) {
+        long product = Math.multiplyExact(cents, Math.round(rate * RATE_SCALE));
+        long quotient = Math.floorDiv(product, RATE_SCALE);
+        long twiceRemainder = 2 * Math.floorMod(product, RATE_SCALE);
+        if (twiceRemainder > RATE_SCALE || (twiceRemainder == RATE_SCALE && (quotient & 1) != 0)) {
+            quotient++;
+        }
+        return quotient;
+    }
+}
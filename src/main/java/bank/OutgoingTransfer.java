@@ -28,11 +28,11 @@ public class OutgoingTransfer extends Transfer{
 
 
     /**
-     * @return Amount von Transfer, wegen Outoging dann negativ
+     * @return Amount von Transfer in Cent, wegen Outoging dann negativ
      */
     @Override
-    public double calculate() {
+    public long calculateCents() {
 
-        return -super.calculate();
+        return -super.calculateCents();
     }
 }
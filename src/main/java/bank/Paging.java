@@ -0,0 +1,41 @@
+package bank;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Argument checks and slicing shared by the paginated and date-range queries of {@link Bank}.
+ */
+final class Paging {
+
+    private Paging() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    static void checkPage(int offset, int limit) {
+        if (offset < 0) throw new IllegalArgumentException("Negative offset: " + offset);
+        if (limit < 0) throw new IllegalArgumentException("Negative limit: " + limit);
+    }
+
+    /**
+     * @throws IllegalArgumentException if from is after to
+     */
+    static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("Empty date range: " + from + " is after " + to);
+    }
+
+    /**
+     * Cuts a page out of a list, clamped to its bounds.
+     *
+     * @param list   the list
+     * @param offset index of the first element, not negative
+     * @param limit  maximum number of elements, not negative
+     * @return a view of the page, empty if the offset is past the end
+     */
+    static <T> List<T> slice(List<T> list, int offset, int limit) {
+        int from = Math.min(offset, list.size());
+        return list.subList(from, from + Math.min(limit, list.size() - from));
+    }
+}
@@ -126,6 +126,24 @@ public class Payment extends Transaction {
             this.outgoingInterest = outgoingInterest;
     }
 
+    /**
+     * setzen wir die Zinsen einer Bank, wenn die Transaction ein Payment ist; andere Transaktionen
+     * bleiben unverändert. Die Banken rufen das vor dem Speichern auf, weil die Zinsen Teil von
+     * equals und hashCode sind.
+     *
+     * @param transaction      die Transaction
+     * @param incomingInterest Zinsen der Bank für Einzahlungen
+     * @param outgoingInterest Zinsen der Bank für Auszahlungen
+     * @throws TransactionAttributeException wenn die Zinsen nicht zwischen 0 und 1 liegen
+     */
+    static void applyBankInterest(Transaction transaction, double incomingInterest, double outgoingInterest)
+            throws TransactionAttributeException {
+        if (transaction instanceof Payment) {
+            ((Payment) transaction).setIncomingInterest(incomingInterest);
+            ((Payment) transaction).setOutgoingInterest(outgoingInterest);
+        }
+    }
+
 
     //KONSTRUKTOREN
 
@@ -172,7 +190,7 @@ public class Payment extends Transaction {
      */
     public Payment (Payment andere) throws TransactionAttributeException{
 
-        this(andere.date, andere.amount, andere.description, andere.incomingInterest, andere.outgoingInterest);
+        this(andere.getDate(), andere.getAmount(), andere.description, andere.incomingInterest, andere.outgoingInterest);
 
 
     }
@@ -193,23 +211,19 @@ public class Payment extends Transaction {
 
 
     /**
-     * Berechnet der Amount der Payment nach der Incoming oder Outgoing Interest
+     * Berechnet der Amount der Payment nach der Incoming oder Outgoing Interest, in Cent.
+     * Die Interest wird half-even auf ganze Cent gerundet (siehe {@link Money#applyRate}).
      *
-     * @return Wert von Amount nach Interest
+     * @return Wert von Amount nach Interest in Cent
      * @return 0 wenn Amount 0 ist
      */
     @Override
-    public double calculate() {
-        double geldmitincominginterest, geldmitoutgoinginterest;
-        if (amount > 0){
-            geldmitincominginterest = amount- amount*incomingInterest;
-            //System.out.println("Nach IncomingInterest: "+ geldmitincominginterest);
-            return geldmitincominginterest;
+    public long calculateCents() {
+        if (amountCents > 0){
+            return amountCents - Money.applyRate(amountCents, incomingInterest);
         }
-        else if (amount < 0){
-            geldmitoutgoinginterest = amount + amount*outgoingInterest;
-            //System.out.println("Nach OutgoingIneterest "+ geldmitoutgoinginterest);
-            return geldmitoutgoinginterest;
+        else if (amountCents < 0){
+            return amountCents + Money.applyRate(amountCents, outgoingInterest);
         }
         else
             return 0;
@@ -237,13 +251,21 @@ public class Payment extends Transaction {
      */
     @Override
     public boolean equals(Object obj) {
+        if (!super.equals(obj)) return false;
         Payment other = (Payment) obj;
-        return (super.equals(other) &&
-                this.incomingInterest == other.incomingInterest &&
-                this.outgoingInterest == other.outgoingInterest
+        return (Double.compare(this.incomingInterest, other.incomingInterest) == 0 &&
+                Double.compare(this.outgoingInterest, other.outgoingInterest) == 0
         );
     }
 
+    /**
+     * @return Hashwert passend zu equals, inklusive der beiden Interest-Werte
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + Double.hashCode(incomingInterest)) + Double.hashCode(outgoingInterest);
+    }
+
     @Override
     public String error(){
 
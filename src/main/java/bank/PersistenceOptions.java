@@ -0,0 +1,190 @@
+package bank;
+
+/**
+ * Settings that control how a {@link PrivateBank} persists its accounts.
+ * <p>
+ * The default settings reproduce the classic behaviour: every mutation rewrites
+ * the complete "Konto [Name].json" snapshot of the affected account.
+ */
+public class PersistenceOptions {
+
+    /**
+     * Whether mutations are appended to a per-account journal instead of rewriting the snapshot.
+     */
+    private boolean journaling = false;
+
+    /**
+     * Number of journal records after which the journal is folded back into the snapshot file.
+     */
+    private int compactionThreshold = 1000;
+
+    /**
+     * Whether mutations are written in batches by a background thread ("group commit").
+     */
+    private boolean groupCommit = false;
+
+    /**
+     * Maximum time in milliseconds a mutation waits before its batch is written.
+     */
+    private long commitWindowMillis = 5;
+
+    /**
+     * Number of pending mutations that causes a batch to be written immediately.
+     */
+    private int maxBatchSize = 512;
+
+    /**
+     * Whether account files are only indexed at startup and read on first access.
+     */
+    private boolean lazyLoading = false;
+
+    /**
+     * Memory budget: maximum number of transactions kept in memory, 0 for no limit.
+     */
+    private long maxCachedTransactions = 0;
+
+    /**
+     * File format of the account snapshots.
+     */
+    private StorageFormat storageFormat = StorageFormat.JSON;
+
+    /**
+     * Number of threads that read account files at startup.
+     */
+    private int loadParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates options with the default settings (no journaling).
+     */
+    public PersistenceOptions() {
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other the options to copy
+     */
+    public PersistenceOptions(PersistenceOptions other) {
+        this.journaling = other.journaling;
+        this.compactionThreshold = other.compactionThreshold;
+        this.groupCommit = other.groupCommit;
+        this.commitWindowMillis = other.commitWindowMillis;
+        this.maxBatchSize = other.maxBatchSize;
+        this.lazyLoading = other.lazyLoading;
+        this.maxCachedTransactions = other.maxCachedTransactions;
+        this.storageFormat = other.storageFormat;
+        this.loadParallelism = other.loadParallelism;
+    }
+
+    public boolean isJournaling() { return journaling; }
+    public void setJournaling(boolean journaling) { this.journaling = journaling; }
+
+    public int getCompactionThreshold() { return compactionThreshold; }
+
+    /**
+     * Sets the number of journal records that triggers a compaction.
+     *
+     * @param compactionThreshold a positive number of records
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactionThreshold);
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public boolean isGroupCommit() { return groupCommit; }
+    public void setGroupCommit(boolean groupCommit) { this.groupCommit = groupCommit; }
+
+    public long getCommitWindowMillis() { return commitWindowMillis; }
+
+    /**
+     * Sets the maximum latency a mutation may wait before its batch is written.
+     *
+     * @param commitWindowMillis the commit window in milliseconds, zero or more
+     * @throws IllegalArgumentException if the window is negative
+     */
+    public void setCommitWindowMillis(long commitWindowMillis) {
+        if (commitWindowMillis < 0) {
+            throw new IllegalArgumentException("Commit window must not be negative: " + commitWindowMillis);
+        }
+        this.commitWindowMillis = commitWindowMillis;
+    }
+
+    public int getMaxBatchSize() { return maxBatchSize; }
+
+    /**
+     * Sets the number of pending mutations that starts a batch before the commit window ends.
+     *
+     * @param maxBatchSize a positive number of mutations
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isLazyLoading() { return lazyLoading; }
+    public void setLazyLoading(boolean lazyLoading) { this.lazyLoading = lazyLoading; }
+
+    public long getMaxCachedTransactions() { return maxCachedTransactions; }
+
+    /**
+     * Sets the memory budget of the account cache. When more transactions are resident, the
+     * least recently used accounts are unloaded once they are persisted, and reloaded from
+     * their files on the next access. Best combined with {@link #setLazyLoading(boolean)}.
+     *
+     * @param maxCachedTransactions the budget in transactions, 0 for no limit
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public void setMaxCachedTransactions(long maxCachedTransactions) {
+        if (maxCachedTransactions < 0) {
+            throw new IllegalArgumentException("Cache budget must not be negative: " + maxCachedTransactions);
+        }
+        this.maxCachedTransactions = maxCachedTransactions;
+    }
+
+    public StorageFormat getStorageFormat() { return storageFormat; }
+
+    /**
+     * Sets the file format of the account snapshots. A bank only reads the files of its own
+     * format; existing directories can be migrated with {@link StorageConverter}.
+     *
+     * @param storageFormat the format
+     * @throws IllegalArgumentException if the format is null
+     */
+    public void setStorageFormat(StorageFormat storageFormat) {
+        if (storageFormat == null) {
+            throw new IllegalArgumentException("Storage format must not be null");
+        }
+        this.storageFormat = storageFormat;
+    }
+
+    public int getLoadParallelism() { return loadParallelism; }
+
+    /**
+     * Sets the number of threads that read account files at startup (without lazy loading).
+     * Defaults to the number of available processors; 1 loads the files one by one.
+     *
+     * @param loadParallelism a positive number of threads
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public void setLoadParallelism(int loadParallelism) {
+        if (loadParallelism < 1) {
+            throw new IllegalArgumentException("Load parallelism must be positive: " + loadParallelism);
+        }
+        this.loadParallelism = loadParallelism;
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceOptions{journaling=" + journaling + ", compactionThreshold=" + compactionThreshold +
+                ", groupCommit=" + groupCommit + ", commitWindowMillis=" + commitWindowMillis +
+                ", maxBatchSize=" + maxBatchSize + ", lazyLoading=" + lazyLoading +
+                ", maxCachedTransactions=" + maxCachedTransactions + ", storageFormat=" + storageFormat +
+                ", loadParallelism=" + loadParallelism + "}";
+    }
+}
@@ -2,44 +2,102 @@ package bank;
 
 import java.util.*;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import com.google.gson.*;
-import com.google.gson.reflect.TypeToken;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 import bank.exceptions.*;
 
 /**
  * A concrete implementation of the {@link Bank} interface.
  * <p>
  * This class manages accounts and transactions in memory and persists them
- * to the local file system as JSON files using the Gson library.
- * Each account is stored in a separate file named "Konto [Name].json".
+ * to the local file system, by default as JSON files using the Gson library.
+ * Each account is stored in a separate file named "Konto [Name].json" (or ".bin" with
+ * {@link StorageFormat#BINARY}, see {@link PersistenceOptions#setStorageFormat(StorageFormat)}).
+ * <p>
+ * The bank is thread-safe. Accounts live in a concurrent map and each account is guarded by
+ * its own read-write lock (see {@link Account}), so operations on different accounts run in
+ * parallel and queries never wait for a writer of another account.
  */
-public class PrivateBank implements Bank {
+public class PrivateBank implements Bank, Closeable {
+
+    /**
+     * Size of the buffer used when streaming account files.
+     */
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Subdirectory receiving account files that could not be read.
+     */
+    public static final String QUARANTINE_DIRECTORY = "quarantine";
+
+    /**
+     * Suffix of the temporary files used for atomic replacement.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
 
     /**
      * The name of the bank.
      */
-    private String name;
+    private volatile String name;
 
     /**
      * The interest rate applied to incoming transactions (0.0 to 1.0).
      */
-    private double incomingInterest;
+    private volatile double incomingInterest;
 
     /**
      * The interest rate applied to outgoing transactions (0.0 to 1.0).
      */
-    private double outgoingInterest;
+    private volatile double outgoingInterest;
 
     /**
      * The file system directory where account data is stored.
      */
-    private String directoryName;
+    private volatile String directoryName;
+
+    /**
+     * Internal storage mapping account names to their state.
+     */
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Settings controlling how accounts are persisted.
+     */
+    private final PersistenceOptions options;
+
+    /**
+     * Writes the accounts in batches on a background thread; null unless group commit is enabled.
+     */
+    private final GroupCommitter committer;
+
+    /**
+     * Tracks the resident accounts and evicts cold ones when a cache budget is configured.
+     */
+    private final AccountCache cache;
+
+    /**
+     * Files moved into the quarantine directory by this bank.
+     */
+    private final List<Path> quarantinedFiles = new CopyOnWriteArrayList<>();
 
     /**
-     * Internal storage mapping account names to lists of transactions.
+     * Timings of the startup, set once by the constructor.
      */
-    private Map<String, List<Transaction>> accountsToTransactions = new HashMap<>();
+    private LoadReport loadReport;
 
     /**
      * Constructs a new PrivateBank and loads existing data from the specified directory.
@@ -51,12 +109,34 @@ public class PrivateBank implements Bank {
      * @throws IOException if an error occurs while reading existing account files
      */
     public PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName) throws IOException {
+        this(name, incomingInterest, outgoingInterest, directoryName, new PersistenceOptions());
+    }
+
+    /**
+     * Constructs a new PrivateBank with custom persistence settings and loads existing data
+     * from the specified directory.
+     *
+     * @param name             the name of the bank
+     * @param incomingInterest the interest on deposits
+     * @param outgoingInterest the interest on withdrawals
+     * @param directoryName    the directory path for storing persistent data
+     * @param options          the persistence settings (copied)
+     * @throws IOException if an error occurs while reading existing account files
+     */
+    public PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName,
+                       PersistenceOptions options) throws IOException {
         this.name = name;
         this.incomingInterest = incomingInterest;
         this.outgoingInterest = outgoingInterest;
         this.directoryName = directoryName;
+        this.options = new PersistenceOptions(options);
+        this.cache = new AccountCache(this.options.getMaxCachedTransactions());
         readAccounts();
+        this.committer = this.options.isGroupCommit()
+                ? new GroupCommitter(name, this::flushAccount, this.options.getCommitWindowMillis(), this.options.getMaxBatchSize())
+                : null;
     }
+
     /**
      * Copy constructor.
      *
@@ -64,158 +144,996 @@ public class PrivateBank implements Bank {
      * @throws IOException if an error occurs while initializing storage
      */
     public PrivateBank(PrivateBank other) throws IOException {
-        this(other.name, other.incomingInterest, other.outgoingInterest, other.directoryName);
+        this(other.name, other.incomingInterest, other.outgoingInterest, other.directoryName, other.options);
     }
     /**
-     * Persists a specific account to the file system.
-     * <p>
-     * Uses {@link TransactionSerializer} to handle polymorphic types.
+     * Persists a specific account to the file system, see {@link #writeSnapshot}.
      *
-     * @param account the name of the account to write
+     * @param account      the name of the account to write
+     * @param transactions the transactions of the account
+     * @param sync         true to also make the rename durable before returning
      * @throws IOException if writing to the file fails
      */
-    private void writeAccount(String account) throws IOException {
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(Transaction.class, new TransactionSerializer())
-                .setPrettyPrinting()
-                .create();
-        List<Transaction> transactions = accountsToTransactions.get(account);
+    private void writeAccount(String account, Collection<Transaction> transactions, boolean sync) throws IOException {
         File dir = new File(directoryName);
         if (!dir.exists()) dir.mkdirs();
-        String fileName = "Konto " + account + ".json";
-        Path path = Paths.get(directoryName, fileName);
-        java.lang.reflect.Type listType = new TypeToken<List<Transaction>>(){}.getType();
-        String jsonString = gson.toJson(transactions, listType);
-        Files.writeString(path, jsonString);
+        StorageFormat format = options.getStorageFormat();
+        writeSnapshot(format, Paths.get(directoryName, format.fileName(account)), transactions);
+        if (sync) forceDirectory(Paths.get(directoryName));
+    }
+
+    /**
+     * Writes a snapshot file.
+     * <p>
+     * The file is written with the codec of the given {@link StorageFormat}, streamed
+     * through a buffer, so the document is never held in memory as a whole.
+     * <p>
+     * The live file is never overwritten in place: the content goes to a temporary file, which
+     * is forced to disk and then atomically renamed over the old file. Its CRC32 is computed
+     * while streaming and stored in a {@link ChecksumFile} sidecar, which is verified on load.
+     *
+     * @param format       the format of the file
+     * @param path         the snapshot file
+     * @param transactions the transactions to write
+     * @throws IOException if writing to the file fails
+     */
+    static void writeSnapshot(StorageFormat format, Path path, Collection<Transaction> transactions) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), IO_BUFFER_SIZE);
+            format.codec().write(transactions, out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        ChecksumFile.write(path, crc.getValue());
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Forces the directory entry changes (renames) to the storage device, where supported.
+     *
+     * @param directory the directory
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the renamed file itself is already durable
+        }
     }
     /**
      * Reads all account files from the configured directory and populates the bank.
-     * Only files matching the pattern "Konto [Name].json" are processed.
+     * Only files matching the pattern "Konto [Name]" plus the extension of the configured
+     * {@link StorageFormat} are processed.
+     * <p>
+     * With lazy loading only the account names are taken from the file names; the
+     * transactions of an account are read on its first access.
+     * <p>
+     * Account files that are corrupt are quarantined and skipped instead of aborting
+     * startup, see {@link #getQuarantinedFiles()}. Temporary files of interrupted writes are deleted.
+     * <p>
+     * The files are parsed by up to {@link PersistenceOptions#getLoadParallelism()} threads;
+     * the timings are available from {@link #getLoadReport()}.
      *
      * @throws IOException if reading the files fails
      */
     private void readAccounts() throws IOException {
-        File dir = new File(directoryName);
-        if (!dir.exists()) return;
-        File[] files = dir.listFiles();
-        if (files == null) return;
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(Transaction.class, new TransactionSerializer())
-                .create();
-        for (File file : files) {
-            String fileName = file.getName();
-            if (fileName.startsWith("Konto ") && fileName.endsWith(".json")) {
-                String account = fileName.substring(6, fileName.length() - 5);
-                String content = Files.readString(file.toPath());
-                java.lang.reflect.Type listType = new TypeToken<List<Transaction>>(){}.getType();
-                List<Transaction> transactionList = gson.fromJson(content, listType);
-                accountsToTransactions.put(account, transactionList);
+        long start = System.nanoTime();
+        List<Account> found = new ArrayList<>();
+        File[] files = new File(directoryName).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("Konto ") && file.getName().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file.toPath());
+                    continue;
+                }
+                String accountName = options.getStorageFormat().accountName(file.getName());
+                if (accountName != null) {
+                    Account acc = new Account(accountName);
+                    accounts.put(acc.name, acc);
+                    found.add(acc);
+                }
+            }
+        }
+        long listed = System.nanoTime();
+
+        int parallelism = 1;
+        if (!options.isLazyLoading() && !found.isEmpty()) {
+            parallelism = Math.min(options.getLoadParallelism(), found.size());
+            if (parallelism == 1) {
+                for (Account acc : found) loadAtStartup(acc);
+            } else {
+                loadInParallel(found, parallelism);
+            }
+        }
+
+        long transactions = 0;
+        int loaded = 0;
+        for (Account acc : found) {
+            if (acc.loaded) {
+                loaded++;
+                transactions += acc.transactions.size();
+            }
+        }
+        int quarantined = (int) found.stream().filter(acc -> !accounts.containsKey(acc.name)).count();
+        loadReport = new LoadReport(found.size(), loaded, transactions, quarantined,
+                options.isLazyLoading() ? 0 : parallelism, listed - start, System.nanoTime() - listed);
+    }
+
+    /**
+     * Loads the accounts on a bounded pool of loader threads. Each account file is parsed by
+     * exactly one thread; the results are published through the concurrent account map.
+     *
+     * @param found       the accounts to load
+     * @param parallelism the number of loader threads
+     * @throws IOException if an account file cannot be read for a reason other than corruption
+     */
+    private void loadInParallel(List<Account> found, int parallelism) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "bank-loader-" + name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Void>> results = new ArrayList<>(found.size());
+            for (Account acc : found) {
+                results.add(pool.submit(() -> {
+                    loadAtStartup(acc);
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IOException("Loading accounts failed", cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while loading accounts");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads one account during startup; a corrupt account is quarantined and skipped.
+     *
+     * @param acc the account to load
+     * @throws IOException if the account files cannot be read for a reason other than corruption
+     */
+    private void loadAtStartup(Account acc) throws IOException {
+        acc.lock.writeLock().lock();
+        try {
+            loadAccount(acc);
+        } catch (CorruptAccountFileException e) {
+            // quarantined and removed by loadAccount
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the snapshot file of an account, replays its journal and installs the result.
+     * Must be called while holding the account's write lock (or before the account is published).
+     * <p>
+     * The checksum is computed while the snapshot is streamed, so verification needs no extra
+     * pass. If the files cannot be read or the checksum does not match, they are moved to the
+     * quarantine directory and the account is removed from the bank.
+     *
+     * @param acc the account to load
+     * @throws CorruptAccountFileException if the account files are corrupt and were quarantined
+     * @throws IOException                 if reading the files fails
+     */
+    private void loadAccount(Account acc) throws IOException {
+        StorageFormat format = options.getStorageFormat();
+        Path path = Paths.get(directoryName, format.fileName(acc.name));
+        LinkedHashSet<Transaction> transactions = new LinkedHashSet<>();
+        int journalRecords;
+        try {
+            if (Files.exists(path)) readSnapshot(format, path, transactions);
+            journalRecords = new TransactionJournal(directoryName, acc.name).replay(transactions);
+        } catch (IOException | RuntimeException e) {
+            quarantine(acc, e);
+            throw new CorruptAccountFileException("Account file " + path + " is corrupt and was quarantined: " +
+                    e.getMessage(), e);
+        }
+        acc.load(transactions, journalRecords);
+        cache.admit(acc, true);
+        cache.evict(acc);
+    }
+
+    /**
+     * Streams a snapshot file into the collection and verifies its checksum on the way.
+     *
+     * @param format       the format of the file
+     * @param path         the snapshot file
+     * @param transactions the collection receiving the transactions
+     * @throws IOException if the file cannot be read, cannot be decoded or does not match its checksum
+     */
+    static void readSnapshot(StorageFormat format, Path path, Collection<Transaction> transactions)
+            throws IOException {
+        long[] accepted = ChecksumFile.read(path);
+        CRC32 crc = new CRC32();
+        try (InputStream in = new BufferedInputStream(
+                new CheckedInputStream(Files.newInputStream(path), crc), IO_BUFFER_SIZE)) {
+            format.codec().read(in, transactions);
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!ChecksumFile.matches(accepted, crc.getValue())) {
+            throw new IOException("Checksum mismatch");
+        }
+    }
+
+    /**
+     * Moves all files of an account into the quarantine directory and removes the account.
+     * Must be called while holding the account's write lock (or before the account is published).
+     *
+     * @param acc   the account
+     * @param cause the reason, kept for the exception of the caller
+     */
+    private void quarantine(Account acc, Exception cause) {
+        accounts.remove(acc.name, acc);
+        Path snapshot = Paths.get(directoryName, options.getStorageFormat().fileName(acc.name));
+        Path target = Paths.get(directoryName, QUARANTINE_DIRECTORY);
+        String suffix = "." + System.currentTimeMillis();
+        for (Path file : List.of(snapshot, ChecksumFile.of(snapshot), Paths.get(directoryName, TransactionJournal.fileName(acc.name)))) {
+            try {
+                if (!Files.exists(file)) continue;
+                Files.createDirectories(target);
+                Path quarantined = target.resolve(file.getFileName() + suffix);
+                Files.move(file, quarantined, StandardCopyOption.REPLACE_EXISTING);
+                quarantinedFiles.add(quarantined);
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Looks up an account and acquires its read lock, loading the transactions first if they
+     * are not in memory. The caller must release the read lock.
+     * <p>
+     * An account that was deleted or quarantined while the caller waited for the lock counts
+     * as missing, so it is never loaded again from the files it left behind.
+     *
+     * @param account the name of the account
+     * @return the loaded, read-locked account, or null if the account does not exist
+     * @throws UncheckedIOException if loading the account fails
+     */
+    private Account lockForRead(String account) {
+        while (true) {
+            Account acc = accounts.get(account);
+            if (acc == null) return null;
+            acc.lock.readLock().lock();
+            if (acc.deleted) {
+                acc.lock.readLock().unlock();
+                return null;
+            }
+            if (accounts.get(account) != acc) {
+                acc.lock.readLock().unlock();
+                continue;
+            }
+            if (acc.loaded) {
+                cache.recordHit(acc);
+                return acc;
+            }
+            acc.lock.readLock().unlock();
+            acc.lock.writeLock().lock();
+            try {
+                if (acc.deleted) {
+                    acc.lock.writeLock().unlock();
+                    return null;
+                }
+                if (accounts.get(account) != acc) {
+                    acc.lock.writeLock().unlock();
+                    continue;
+                }
+                if (!acc.loaded) loadAccount(acc);
+            } catch (CorruptAccountFileException e) {
+                // the account has been quarantined and no longer exists
+                acc.lock.writeLock().unlock();
+                return null;
+            } catch (IOException e) {
+                acc.lock.writeLock().unlock();
+                throw new UncheckedIOException("Loading account failed: " + account, e);
+            }
+            // downgrade: take the read lock before giving up the write lock
+            acc.lock.readLock().lock();
+            acc.lock.writeLock().unlock();
+            return acc;
+        }
+    }
+
+    /**
+     * Looks up an account for a mutation and acquires its write lock, loading the transactions
+     * first if they are not in memory. The caller must release the write lock.
+     * <p>
+     * An account that was deleted or quarantined while the caller waited for the lock counts
+     * as missing, so it is never loaded again from the files it left behind.
+     *
+     * @param account the name of the account
+     * @return the loaded, write-locked account
+     * @throws AccountDoesNotExistException if the account does not exist
+     * @throws IOException                  if loading the account fails (the lock is released in that case)
+     */
+    private Account lockForWrite(String account) throws AccountDoesNotExistException, IOException {
+        while (true) {
+            Account acc = requireAccount(account);
+            acc.lock.writeLock().lock();
+            if (acc.deleted) {
+                acc.lock.writeLock().unlock();
+                throw new AccountDoesNotExistException("Account not found: " + account);
+            }
+            if (accounts.get(account) != acc) {
+                acc.lock.writeLock().unlock();
+                continue;
+            }
+            try {
+                if (acc.loaded) cache.recordHit(acc);
+                else loadAccount(acc);
+            } catch (IOException e) {
+                acc.lock.writeLock().unlock();
+                throw e;
             }
+            return acc;
         }
     }
 
+    /**
+     * Persists a single mutation of an account. Must be called while holding the account's write lock.
+     * <p>
+     * In group commit mode the account is only marked dirty and written later by the
+     * {@link GroupCommitter}. Otherwise it is written immediately: in journaling mode the
+     * mutation is appended to the account's journal, and the journal is compacted into the
+     * snapshot once it reaches the configured threshold; without journaling the whole
+     * snapshot is rewritten.
+     *
+     * @param acc         the account
+     * @param operation   the kind of mutation
+     * @param transaction the affected transaction
+     * @return a future that completes when the mutation is durable
+     * @throws IOException if writing to the file system fails
+     */
+    private CompletableFuture<Void> persist(Account acc, TransactionJournal.Operation operation, Transaction transaction)
+            throws IOException {
+        acc.version++;
+        if (committer != null) {
+            if (options.isJournaling()) {
+                acc.pendingJournal.add(new TransactionJournal.Entry(operation, transaction));
+            }
+            return committer.submit(acc.name);
+        }
+        if (!options.isJournaling()) {
+            writeAccount(acc.name, acc.transactions, false);
+        } else {
+            new TransactionJournal(directoryName, acc.name).append(operation, transaction);
+            if (++acc.journalRecords >= options.getCompactionThreshold()) {
+                compact(acc);
+            }
+        }
+        acc.persistedVersion = acc.version;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes the whole account as a snapshot, for a freshly created account or after a bulk
+     * import. Must be called while holding the account's write lock.
+     *
+     * @param acc the account
+     * @return a future that completes when the account file is durable
+     * @throws IOException if writing to the file system fails
+     */
+    private CompletableFuture<Void> persistSnapshot(Account acc) throws IOException {
+        acc.version++;
+        if (committer != null) {
+            acc.snapshotRequested = true;
+            return committer.submit(acc.name);
+        }
+        compact(acc);
+        acc.persistedVersion = acc.version;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes one dirty account on behalf of the {@link GroupCommitter}.
+     * <p>
+     * Only the copy of the in-memory state is taken under the account's lock; the file I/O
+     * runs without it, so callers can keep mutating while a batch is being written. Pending
+     * journal records are appended with a single forced write. A snapshot is written instead
+     * if the account is new, if compaction was requested, or if the journal reached its threshold.
+     * If a write fails, the account keeps its pending records and snapshot request, so the next
+     * batch writes them again.
+     *
+     * @param account the name of the account
+     * @throws IOException if writing to the file system fails
+     */
+    private void flushAccount(String account) throws IOException {
+        Account acc = accounts.get(account);
+        if (acc == null || !acc.loaded) return;
+        TransactionJournal journal = new TransactionJournal(directoryName, account);
+        List<TransactionJournal.Entry> taken;
+        List<TransactionJournal.Entry> entries = null;
+        List<Transaction> snapshot = null;
+        int previousRecords;
+        long version;
+        acc.lock.writeLock().lock();
+        try {
+            // the account was deleted or quarantined since the batch was queued
+            if (acc.deleted || accounts.get(account) != acc) return;
+            version = acc.version;
+            previousRecords = acc.journalRecords;
+            taken = acc.pendingJournal;
+            acc.pendingJournal = new ArrayList<>();
+            boolean snapshotDue = !options.isJournaling() || acc.snapshotRequested
+                    || acc.journalRecords + taken.size() >= options.getCompactionThreshold();
+            acc.snapshotRequested = false;
+            if (snapshotDue) {
+                acc.journalRecords = 0;
+                snapshot = new ArrayList<>(acc.transactions);
+            } else {
+                entries = taken;
+                acc.journalRecords += entries.size();
+            }
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
+        if (entries != null && !entries.isEmpty()) {
+            try {
+                journal.append(entries, true);
+            } catch (IOException e) {
+                acc.lock.writeLock().lock();
+                try {
+                    acc.pendingJournal.addAll(0, entries);
+                    acc.journalRecords -= entries.size();
+                } finally {
+                    acc.lock.writeLock().unlock();
+                }
+                throw e;
+            }
+        }
+        if (snapshot != null) {
+            try {
+                writeAccount(account, snapshot, true);
+            } catch (IOException | RuntimeException e) {
+                // the taken records are in neither file: request the snapshot again for the next batch
+                acc.lock.writeLock().lock();
+                try {
+                    acc.snapshotRequested = true;
+                    acc.pendingJournal.addAll(0, taken);
+                    acc.journalRecords += previousRecords;
+                } finally {
+                    acc.lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            if (options.isJournaling()) journal.delete();
+        }
+        acc.lock.writeLock().lock();
+        try {
+            acc.persistedVersion = Math.max(acc.persistedVersion, version);
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
+        cache.evict(null);
+    }
+
+    /**
+     * Folds the journal of an account into its snapshot file and deletes the journal.
+     * Must be called while holding the account's write lock.
+     *
+     * @param acc the account
+     * @throws IOException if writing the snapshot or deleting the journal fails
+     */
+    private void compact(Account acc) throws IOException {
+        writeAccount(acc.name, acc.transactions, false);
+        new TransactionJournal(directoryName, acc.name).delete();
+        acc.journalRecords = 0;
+    }
+
+    /**
+     * Compacts the journals of all accounts into their snapshot files.
+     * Has no effect on accounts without pending journal records; accounts that are not
+     * loaded are only loaded if a journal file exists for them.
+     *
+     * @throws IOException if writing a snapshot or deleting a journal fails
+     */
+    public void compact() throws IOException {
+        for (String name : accounts.keySet()) {
+            Account acc = accounts.get(name);
+            if (acc == null || !acc.loaded && !Files.exists(Paths.get(directoryName, TransactionJournal.fileName(name)))) continue;
+            try {
+                acc = lockForWrite(name);
+            } catch (AccountDoesNotExistException e) {
+                // deleted in the meantime
+                continue;
+            }
+            try {
+                if (committer == null) {
+                    if (acc.journalRecords > 0) compact(acc);
+                } else if (acc.journalRecords > 0 || !acc.pendingJournal.isEmpty()) {
+                    acc.snapshotRequested = true;
+                    committer.submit(acc.name);
+                }
+            } finally {
+                acc.lock.writeLock().unlock();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Durability barrier: blocks until every mutation made before the call has been written.
+     * Without group commit all writes are synchronous and this method returns immediately.
+     *
+     * @throws IOException if writing one of the pending accounts failed
+     */
+    public void flush() throws IOException {
+        if (committer != null) committer.flush();
+    }
+
+    /**
+     * Flushes pending writes and stops the group commit writer thread, if any.
+     * The bank must not be mutated afterwards.
+     *
+     * @throws IOException if writing one of the pending accounts failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (committer != null) committer.close();
+    }
+
+    /**
+     * @return the number of batches written by the group committer so far, 0 without group commit
+     */
+    public long getCommittedBatchCount() {
+        return committer != null ? committer.getBatchCount() : 0;
+    }
+
+    /**
+     * Registers a new account and writes it. The account is locked until it has been
+     * persisted, so concurrent callers never observe a half-created account.
+     *
+     * @param acc the account to register
+     * @throws AccountAlreadyExistsException if an account with this name already exists
+     * @throws IOException                   if writing the account fails
+     */
+    private void registerAccount(Account acc) throws AccountAlreadyExistsException, IOException {
+        acc.lock.writeLock().lock();
+        try {
+            if (accounts.putIfAbsent(acc.name, acc) != null) {
+                throw new AccountAlreadyExistsException("Account already exists: " + acc.name);
+            }
+            cache.admit(acc, false);
+            persistSnapshot(acc);
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up an account for a mutation.
+     *
+     * @param account the name of the account
+     * @return the account
+     * @throws AccountDoesNotExistException if the account does not exist
+     */
+    private Account requireAccount(String account) throws AccountDoesNotExistException {
+        Account acc = accounts.get(account);
+        if (acc == null) {
+            throw new AccountDoesNotExistException("Account not found: " + account);
+        }
+        return acc;
+    }
+
     @Override
     public void createAccount(String account) throws AccountAlreadyExistsException, IOException {
-        if (accountsToTransactions.containsKey(account)) {
+        if (accounts.containsKey(account)) {
             throw new AccountAlreadyExistsException("Account already exists: " + account);
         }
-        accountsToTransactions.put(account, new ArrayList<>());
-        writeAccount(account);
+        registerAccount(new Account(account, new LinkedHashSet<>()));
     }
 
     @Override
     public void createAccount(String account, List<Transaction> transactions)
             throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException, IOException {
-        if (accountsToTransactions.containsKey(account)) {
+        if (accounts.containsKey(account)) {
             throw new AccountAlreadyExistsException("Account already exists: " + account);
         }
-        List<Transaction> transactionList = new ArrayList<>();
+        LinkedHashSet<Transaction> transactionSet = new LinkedHashSet<>();
         for (Transaction t : transactions) {
-            if (t.getAmount() < 0) throw new TransactionAttributeException("Invalid negative amount in creation");
-            if (transactionList.contains(t)) throw new TransactionAlreadyExistException("Duplicate transaction detected");
-            transactionList.add(t);
+            if (t.getAmountCents() < 0) throw new TransactionAttributeException("Invalid negative amount in creation");
+            if (!transactionSet.add(t)) throw new TransactionAlreadyExistException("Duplicate transaction detected");
+        }
+        registerAccount(new Account(account, transactionSet));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The account is marked as deleted under its write lock, so waiting readers and writers
+     * treat it as missing. It stays registered until a running group commit batch has finished
+     * writing it and its snapshot, checksum and journal files are deleted, so the name cannot
+     * be reused while the old files are still being written.
+     */
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException, IOException {
+        Account acc = requireAccount(account);
+        acc.lock.writeLock().lock();
+        try {
+            if (acc.deleted || accounts.get(account) != acc) {
+                throw new AccountDoesNotExistException("Account not found: " + account);
+            }
+            acc.deleted = true;
+            if (acc.loaded) {
+                cache.forget(acc);
+                acc.unload();
+            }
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
+        try {
+            flush();
+            Path snapshot = Paths.get(directoryName, options.getStorageFormat().fileName(account));
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(ChecksumFile.of(snapshot));
+            new TransactionJournal(directoryName, account).delete();
+        } finally {
+            accounts.remove(account, acc);
         }
-        accountsToTransactions.put(account, transactionList);
-        writeAccount(account);
     }
 
     @Override
     public void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
-        if (!accountsToTransactions.containsKey(account)) {
-            throw new AccountDoesNotExistException("Account not found: " + account);
-        }
-        List<Transaction> transactionList = accountsToTransactions.get(account);
+        addTransactionAsync(account, transaction);
+    }
 
-        if (transactionList.contains(transaction)) {
-            throw new TransactionAlreadyExistException("Transaction already exists");
-        }
+    /**
+     * Adds a transaction to an existing account and returns a future for its durability.
+     * <p>
+     * Validation happens synchronously, so the exceptions are the same as for
+     * {@link #addTransaction(String, Transaction)}. In group commit mode the returned future
+     * completes once the batch containing the mutation has been forced to disk; otherwise
+     * the mutation is already written when the method returns.
+     *
+     * @param account     the name of the account
+     * @param transaction the transaction object to add
+     * @return a future that completes when the mutation is durable
+     * @throws TransactionAlreadyExistException if the transaction already exists in the account
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionAttributeException    if validation of transaction attributes fails
+     * @throws IOException                      if an error occurs while saving the changes to the file system
+     */
+    public CompletableFuture<Void> addTransactionAsync(String account, Transaction transaction)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        Account acc = lockForWrite(account);
+        try {
+            Payment.applyBankInterest(transaction, incomingInterest, outgoingInterest);
 
-        if (transaction instanceof Payment) {
-            ((Payment) transaction).setIncomingInterest(this.incomingInterest);
-            ((Payment) transaction).setOutgoingInterest(this.outgoingInterest);
+            if (!acc.add(transaction)) {
+                throw new TransactionAlreadyExistException("Transaction already exists");
+            }
+            cache.resize(1);
+            CompletableFuture<Void> durable = persist(acc, TransactionJournal.Operation.ADD, transaction);
+            cache.evict(acc);
+            return durable;
+        } finally {
+            acc.lock.writeLock().unlock();
         }
+    }
 
-        transactionList.add(transaction);
-        writeAccount(account);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The transactions are validated and indexed under a single write lock of the account and
+     * the account is persisted once, as a snapshot, instead of once per transaction. If a
+     * transaction is rejected, the ones added before it are removed again and nothing is written.
+     * The source itself is streamed, but the account holds all transactions in memory.
+     */
+    @Override
+    public int addTransactions(String account, Iterable<? extends Transaction> transactions)
+            throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException, IOException {
+        Account acc = lockForWrite(account);
+        try {
+            List<Transaction> added = new ArrayList<>();
+            try {
+                for (Transaction transaction : transactions) {
+                    Payment.applyBankInterest(transaction, incomingInterest, outgoingInterest);
+                    if (!acc.add(transaction)) {
+                        throw new TransactionAlreadyExistException("Transaction already exists: " + transaction);
+                    }
+                    added.add(transaction);
+                }
+            } catch (TransactionAlreadyExistException | TransactionAttributeException | RuntimeException e) {
+                for (Transaction transaction : added) acc.remove(transaction);
+                throw e;
+            }
+            if (added.isEmpty()) return 0;
+            cache.resize(added.size());
+            // one snapshot replaces the journal records the transactions would have needed
+            persistSnapshot(acc);
+            cache.evict(acc);
+            return added.size();
+        } finally {
+            acc.lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void removeTransaction(String account, Transaction transaction)
             throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
-        if (!accountsToTransactions.containsKey(account)) {
-            throw new AccountDoesNotExistException("Account not found: " + account);
-        }
-        List<Transaction> transactionList = accountsToTransactions.get(account);
+        removeTransactionAsync(account, transaction);
+    }
 
-        if (!transactionList.contains(transaction)) {
-            throw new TransactionDoesNotExistException("Transaction not found");
+    /**
+     * Removes a transaction from an existing account and returns a future for its durability.
+     *
+     * @param account     the name of the account
+     * @param transaction the transaction object to remove
+     * @return a future that completes when the mutation is durable
+     * @throws AccountDoesNotExistException     if the specified account does not exist
+     * @throws TransactionDoesNotExistException if the transaction is not found in the account
+     * @throws IOException                      if an error occurs while saving the changes to the file system
+     * @see #addTransactionAsync(String, Transaction)
+     */
+    public CompletableFuture<Void> removeTransactionAsync(String account, Transaction transaction)
+            throws AccountDoesNotExistException, TransactionDoesNotExistException, IOException {
+        Account acc = lockForWrite(account);
+        try {
+            if (!acc.remove(transaction)) {
+                throw new TransactionDoesNotExistException("Transaction not found");
+            }
+            cache.resize(-1);
+            return persist(acc, TransactionJournal.Operation.REMOVE, transaction);
+        } finally {
+            acc.lock.writeLock().unlock();
         }
-
-        transactionList.remove(transaction);
-        writeAccount(account);
     }
 
     @Override
     public boolean containsTransaction(String account, Transaction transaction) {
-        if (!accountsToTransactions.containsKey(account)) return false;
-        return accountsToTransactions.get(account).contains(transaction);
+        Account acc = lockForRead(account);
+        if (acc == null) return false;
+        try {
+            return acc.transactions.contains(transaction);
+        } finally {
+            acc.lock.readLock().unlock();
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The balance is maintained incrementally on every add and remove, so this is a constant
+     * time read. See {@link #verifyBalances()} for a consistency check against a full recomputation.
+     */
     @Override
     public double getAccountBalance(String account) {
-        double balance = 0.0;
-        List<Transaction> list = accountsToTransactions.get(account);
-        if (list != null) {
-            for (Transaction t : list) balance += t.calculate();
+        return Money.toUnits(getAccountBalanceCents(account));
+    }
+
+    /**
+     * Returns the exact balance of an account in cents.
+     *
+     * @param account the name of the account
+     * @return the sum of all calculated transaction values in cents, 0 for an unknown account
+     */
+    public long getAccountBalanceCents(String account) {
+        Account acc = lockForRead(account);
+        if (acc == null) return 0;
+        try {
+            return acc.balanceCents;
+        } finally {
+            acc.lock.readLock().unlock();
         }
-        return balance;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each account keeps prefix sums of its values in date order, so this is a binary search.
+     * The sums are extended in place while transactions are added in date order; other changes
+     * make the next query rebuild them once.
+     */
+    @Override
+    public double getBalanceAsOf(String account, LocalDate date) {
+        return Money.toUnits(getBalanceAsOfCents(account, date));
+    }
+
+    /**
+     * Returns the exact balance of an account at the end of a day in cents.
+     *
+     * @param account the name of the account
+     * @param date    the day
+     * @return the sum of the calculated values of all transactions dated up to the day in cents,
+     * 0 for an unknown account
+     */
+    public long getBalanceAsOfCents(String account, LocalDate date) {
+        Account acc = lockForRead(account);
+        if (acc == null) return 0;
+        try {
+            return acc.balanceAsOf(date.toEpochDay());
+        } finally {
+            acc.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Verification mode for the balance cache: recomputes the balance of every account from
+     * scratch and compares it with the incrementally maintained value.
+     * <p>
+     * Since balances are exact cent sums, drift is only possible if stored transactions were
+     * modified behind the bank's back. The other derived state (the value and date indexes, the
+     * incoming and outgoing partitions with their subtotals and the date prefix sums) is checked
+     * as well; affected accounts have all of it rebuilt from the transactions.
+     *
+     * @return the drift (cached minus recomputed balance) of every account that deviated,
+     *         0 for an account whose balance matched but whose indexes did not,
+     *         an empty map if all accounts are consistent
+     */
+    public Map<String, Double> verifyBalances() {
+        Map<String, Double> drift = new TreeMap<>();
+        for (Account acc : accounts.values()) {
+            acc.lock.writeLock().lock();
+            try {
+                if (!acc.loaded) continue;
+                long recalculated = acc.recalculateBalance();
+                if (acc.balanceCents != recalculated || !acc.isConsistent()) {
+                    drift.put(acc.name, Money.toUnits(acc.balanceCents - recalculated));
+                    cache.resize(acc.rebuild());
+                }
+            } finally {
+                acc.lock.writeLock().unlock();
+            }
+        }
+        return drift;
     }
 
     @Override
     public List<Transaction> getTransactions(String account) {
-        List<Transaction> list = accountsToTransactions.get(account);
-        return list != null ? new ArrayList<>(list) : new ArrayList<>();
+        Account acc = lockForRead(account);
+        if (acc == null) return new ArrayList<>();
+        try {
+            return acc.snapshot();
+        } finally {
+            acc.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The snapshot is built once after each mutation of the account and shared by all readers
+     * until the next one, so repeated reads do not copy.
+     */
+    @Override
+    public List<Transaction> getTransactionsView(String account) {
+        Account acc = lockForRead(account);
+        if (acc == null) return List.of();
+        try {
+            return acc.view();
+        } finally {
+            acc.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each account keeps its insertion order addressable by position, so a page costs
+     * O(log n + limit) if no transactions inside it were removed and O(limit log n) at most,
+     * also while the account is being written.
+     */
+    @Override
+    public List<Transaction> getTransactions(String account, int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        Account acc = lockForRead(account);
+        if (acc == null) return new ArrayList<>();
+        try {
+            return acc.page(offset, limit);
+        } finally {
+            acc.lock.readLock().unlock();
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each account keeps an index by date, so a page costs O(log n + offset + limit) instead of
+     * a scan of the whole account.
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to, int offset, int limit) {
+        Paging.checkRange(from, to);
+        Paging.checkPage(offset, limit);
+        Account acc = lockForRead(account);
+        if (acc == null) return new ArrayList<>();
+        try {
+            return acc.between(from.toEpochDay(), to.toEpochDay(), offset, limit);
+        } finally {
+            acc.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each account keeps an index ordered by calculated value, so this is a linear walk without
+     * sorting. Transactions with equal values keep their insertion order in both directions.
+     */
     @Override
     public List<Transaction> getTransactionsSorted(String account, boolean asc) {
-        List<Transaction> list = getTransactions(account);
-        list.sort((t1, t2) -> asc ? Double.compare(t1.calculate(), t2.calculate())
-                : Double.compare(t2.calculate(), t1.calculate()));
-        return list;
+        Account acc = lockForRead(account);
+        if (acc == null) return new ArrayList<>();
+        try {
+            return acc.sorted(asc);
+        } finally {
+            acc.lock.readLock().unlock();
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each account keeps its incoming and outgoing transactions partitioned as they are added
+     * and removed. The returned list is read-only and shared between callers until the account
+     * changes, so repeated calls neither copy nor recalculate. Transactions with a value of
+     * zero are in neither partition.
+     */
     @Override
     public List<Transaction> getTransactionsByType(String account, boolean positive) {
-        List<Transaction> list = getTransactions(account);
-        List<Transaction> filtered = new ArrayList<>();
-        for (Transaction t : list) {
-            if ((positive && t.calculate() > 0) || (!positive && t.calculate() < 0)) {
-                filtered.add(t);
-            }
+        Account acc = lockForRead(account);
+        if (acc == null) return List.of();
+        try {
+            return acc.partition(positive);
+        } finally {
+            acc.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sum of the incoming or outgoing transactions of an account.
+     *
+     * @param account  the name of the account
+     * @param positive true for the incoming, false for the outgoing transactions
+     * @return the subtotal, negative for outgoing transactions, 0 for an unknown account
+     */
+    public double getAccountSubtotal(String account, boolean positive) {
+        return Money.toUnits(getAccountSubtotalCents(account, positive));
+    }
+
+    /**
+     * Returns the exact sum of the incoming or outgoing transactions of an account in cents.
+     * Like the balance, the subtotals are maintained on every add and remove.
+     *
+     * @param account  the name of the account
+     * @param positive true for the incoming, false for the outgoing transactions
+     * @return the subtotal in cents, negative for outgoing transactions, 0 for an unknown account
+     */
+    public long getAccountSubtotalCents(String account, boolean positive) {
+        Account acc = lockForRead(account);
+        if (acc == null) return 0;
+        try {
+            return positive ? acc.incomingCents : acc.outgoingCents;
+        } finally {
+            acc.lock.readLock().unlock();
         }
-        return filtered;
     }
 
     // Getters and Setters
@@ -227,10 +1145,53 @@ public class PrivateBank implements Bank {
     public void setOutgoingInterest(double i) { this.outgoingInterest = i; }
     public String getDirectoryName() { return directoryName; }
     public void setDirectoryName(String d) { this.directoryName = d; }
+    public PersistenceOptions getPersistenceOptions() { return new PersistenceOptions(options); }
+
+    /**
+     * @return the current hit, miss and eviction counters of the account cache
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache.statistics(getLoadedAccountCount());
+    }
+
+    /**
+     * @return the files this bank has moved into the quarantine directory because they were
+     *         corrupt, in the order they were quarantined
+     */
+    public List<Path> getQuarantinedFiles() {
+        return List.copyOf(quarantinedFiles);
+    }
+
+    /**
+     * @return the timings and counts of the startup of this bank
+     */
+    public LoadReport getLoadReport() {
+        return loadReport;
+    }
+
+    /**
+     * @return the number of accounts whose transactions are currently in memory
+     */
+    public int getLoadedAccountCount() {
+        int loaded = 0;
+        for (Account acc : accounts.values()) {
+            if (acc.loaded) loaded++;
+        }
+        return loaded;
+    }
+
+    /**
+     * @return a copy of all accounts and their transactions, each account copied under its lock
+     */
+    private Map<String, List<Transaction>> snapshotAccounts() {
+        Map<String, List<Transaction>> result = new TreeMap<>();
+        for (String account : accounts.keySet()) result.put(account, getTransactions(account));
+        return result;
+    }
 
     @Override
     public String toString() {
-        return "PrivateBank{name='" + name + "', directory='" + directoryName + "', accounts=" + accountsToTransactions + "}";
+        return "PrivateBank{name='" + name + "', directory='" + directoryName + "', accounts=" + snapshotAccounts() + "}";
     }
 
     @Override
@@ -242,6 +1203,6 @@ public class PrivateBank implements Bank {
                 Double.compare(that.outgoingInterest, outgoingInterest) == 0 &&
                 Objects.equals(name, that.name) &&
                 Objects.equals(directoryName, that.directoryName) &&
-                Objects.equals(accountsToTransactions, that.accountsToTransactions);
+                Objects.equals(snapshotAccounts(), that.snapshotAccounts());
     }
-}
\ No newline at end of file
+}
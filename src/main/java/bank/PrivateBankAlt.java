@@ -105,6 +105,14 @@ public class PrivateBankAlt implements Bank{
     }
 
 
+    @Override
+    public void deleteAccount(String account) throws AccountDoesNotExistException {
+        if (accountsToTransactions.remove(account) == null) { // Prufung ob der Konto existiert
+            throw new AccountDoesNotExistException("Konto '" + account + "' existiert nicht.");
+        }
+    }
+
+
     @Override
     public void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
@@ -0,0 +1,66 @@
+package bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the account snapshots of a bank directory between {@link StorageFormat}s.
+ * <p>
+ * Only the snapshot files are converted; journal files are format independent and keep
+ * applying on top of the converted snapshot. The source files are left in place, a
+ * {@link PrivateBank} only reads the files of its configured format.
+ * <p>
+ * Source files are verified against their {@link ChecksumFile} sidecar, and target files are
+ * written like the bank writes them: to a temporary file that is forced and atomically renamed,
+ * with a new sidecar.
+ */
+public final class StorageConverter {
+
+    private StorageConverter() {
+    }
+
+    /**
+     * Converts every account snapshot of the directory. Existing target files are overwritten.
+     *
+     * @param directoryName the bank directory
+     * @param from          the format of the existing files
+     * @param to            the format to write
+     * @return the number of converted accounts
+     * @throws IOException if reading or writing a file fails
+     */
+    public static int convert(String directoryName, StorageFormat from, StorageFormat to) throws IOException {
+        File[] files = new File(directoryName).listFiles();
+        if (files == null || from == to) return 0;
+        int converted = 0;
+        for (File file : files) {
+            String account = from.accountName(file.getName());
+            if (account == null) continue;
+            convertFile(file.toPath(), from, Paths.get(directoryName, to.fileName(account)), to);
+            converted++;
+        }
+        PrivateBank.forceDirectory(Paths.get(directoryName));
+        return converted;
+    }
+
+    /**
+     * Converts a single account file.
+     *
+     * @param source the file to read
+     * @param from   the format of the source file
+     * @param target the file to write
+     * @param to     the format of the target file
+     * @throws IOException if reading or writing fails, or the source does not match its checksum
+     */
+    public static void convertFile(Path source, StorageFormat from, Path target, StorageFormat to) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            PrivateBank.readSnapshot(from, source, transactions);
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Cannot convert " + source + ": " + e.getMessage(), e);
+        }
+        PrivateBank.writeSnapshot(to, target, transactions);
+    }
+}
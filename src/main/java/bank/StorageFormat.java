@@ -0,0 +1,58 @@
+package bank;
+
+/**
+ * File formats for the account snapshots of a {@link PrivateBank}.
+ * <p>
+ * Each account is stored in a file named "Konto [Name]" followed by the extension of the
+ * format. Use {@link StorageConverter} to migrate a directory from one format to another.
+ */
+public enum StorageFormat {
+
+    /**
+     * Pretty-printed JSON, readable and compatible with older versions (".json").
+     */
+    JSON(".json", new JsonAccountCodec()),
+
+    /**
+     * Compact binary records with interned strings (".bin"), see {@link BinaryAccountCodec}.
+     */
+    BINARY(".bin", new BinaryAccountCodec());
+
+    private final String extension;
+    private final AccountCodec codec;
+
+    StorageFormat(String extension, AccountCodec codec) {
+        this.extension = extension;
+        this.codec = codec;
+    }
+
+    /**
+     * @return the file name extension including the dot, e.g. ".json"
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param account the name of the account
+     * @return the file name of the account snapshot, e.g. "Konto Alice.json"
+     */
+    public String fileName(String account) {
+        return "Konto " + account + extension;
+    }
+
+    /**
+     * Extracts the account name from a snapshot file name.
+     *
+     * @param fileName the file name
+     * @return the account name, or null if the file is no snapshot in this format
+     */
+    String accountName(String fileName) {
+        if (!fileName.startsWith("Konto ") || !fileName.endsWith(extension)) return null;
+        return fileName.substring(6, fileName.length() - extension.length());
+    }
+
+    AccountCodec codec() {
+        return codec;
+    }
+}
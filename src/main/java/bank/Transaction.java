@@ -1,6 +1,7 @@
 package bank;
 
 import bank.exceptions.TransactionAttributeException;
+import java.util.Objects;
 
 /**
  * Abstrakte Klasse, die eine generische Banktransaktion darstellt.
@@ -11,14 +12,24 @@ import bank.exceptions.TransactionAttributeException;
 abstract class Transaction implements CalculateBill {
 
     /**
-     * Datum mit DD.MM.YYYY Format
+     * Datum als Epoch-Day ({@link java.time.LocalDate#toEpochDay()}), einmal beim Setzen aus dem
+     * DD.MM.YYYY Format geparst. {@link TransactionDates#UNDATED}, wenn das Datum fehlt oder nicht
+     * geparst werden kann.
      */
-    protected String date;
+    protected long epochDay = TransactionDates.UNDATED;
 
     /**
-     * Geldmenge einer Ein- oder Auszahlung (nur positiv Wert)
+     * Das Datum im Original, nur wenn es nicht im DD.MM.YYYY Format vorliegt; sonst null.
+     * So bleiben auch solche Daten beim Speichern unverändert.
      */
-    protected double amount;
+    protected String undatedDate;
+
+    /**
+     * Geldmenge einer Ein- oder Auszahlung in Cent (Festkomma, siehe {@link Money}).
+     * In JSON wird der Wert weiterhin als Dezimalzahl unter "amount" gespeichert
+     * (siehe {@link TransactionSerializer}).
+     */
+    protected long amountCents;
 
     /**
      * //beschreibung von Payment
@@ -33,19 +44,29 @@ abstract class Transaction implements CalculateBill {
     /**
      * bekommen wir die Datum
      *
-     * @return Datum
+     * @return Datum im DD.MM.YYYY Format, bzw. unverändert, wenn es nicht geparst werden konnte
      */
     public String getDate() {
-        return date;
+        return epochDay == TransactionDates.UNDATED ? undatedDate : TransactionDates.format(epochDay);
     }
 
     /**
-     * setzen wir die Datum
+     * setzen wir die Datum; es wird hier einmal geparst
      *
      * @param date
      */
     public void setDate(String date) {
-        this.date = date;
+        this.epochDay = TransactionDates.toEpochDay(date);
+        this.undatedDate = epochDay == TransactionDates.UNDATED ? date : null;
+    }
+
+    /**
+     * bekommen wir die Datum als Epoch-Day, zum Sortieren und für Zeiträume
+     *
+     * @return Epoch-Day, oder {@link TransactionDates#UNDATED}
+     */
+    long getEpochDay() {
+        return epochDay;
     }
 
 
@@ -56,17 +77,26 @@ abstract class Transaction implements CalculateBill {
      * @return Amount
      */
     public double getAmount() {
-        return amount;
+        return Money.toUnits(amountCents);
+    }
+
+    /**
+     * bekommen wir die Anzahl von Payment in Cent
+     *
+     * @return Amount in Cent
+     */
+    public long getAmountCents() {
+        return amountCents;
     }
 
 
     /**
-     * setzen wir die Anzahl von Payment
+     * setzen wir die Anzahl von Payment, auf ganze Cent gerundet (half-even)
      *
      * @param amount
      */
     public void setAmount(double amount) throws TransactionAttributeException {
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
     }
 
     //DESCRIPTION
@@ -100,19 +130,34 @@ abstract class Transaction implements CalculateBill {
      */
     public Transaction(String date, double amount, String description){
 
-        this.date = date;
-        this.amount = amount;
+        setDate(date);
+        this.amountCents = Money.toCents(amount);
         this.description = description;
 
     }
 
 
+    /**
+     * Berechnet den Wert der Transaktion in Cent.
+     *
+     * @return Wert nach Interest bzw. Richtung der Transaktion in Cent
+     */
+    public abstract long calculateCents();
+
+    /**
+     * @return Wert von {@link #calculateCents()} in Euro
+     */
+    @Override
+    public double calculate() {
+        return Money.toUnits(calculateCents());
+    }
+
     /**
      * @return  String mit Werten von Date, Amount und Description
      */
     @Override
     public String toString(){
-        return (    "Date: " + this.date +
+        return (    "Date: " + getDate() +
                     ", Amount: " + this.calculate() +
                     " , Description: " + this.description
                 );
@@ -131,13 +176,30 @@ abstract class Transaction implements CalculateBill {
 
         Transaction other = (Transaction) obj;
 
-        boolean dateMatch = (this.date == null) ? (other.date == null) : this.date.equals(other.date);
+        // gleiche Epoch-Days haben dieselbe DD.MM.YYYY Darstellung
+        boolean dateMatch = this.epochDay == other.epochDay && Objects.equals(this.undatedDate, other.undatedDate);
         boolean descMatch = (this.description == null) ? (other.description == null) : this.description.equals(other.description);
 
-        return (Double.compare(this.amount, other.amount) == 0 &&
+        return (this.amountCents == other.amountCents &&
                 dateMatch &&
                 descMatch &&
-                Double.compare(this.calculate(), other.calculate()) == 0
+                this.calculateCents() == other.calculateCents()
         );
     }
+
+    /**
+     * Hashwert passend zu {@link #equals(Object)}; Unterklassen, die in equals weitere Attribute
+     * vergleichen, nehmen sie dazu. Für das Datum wird derselbe Wert wie für den Datums-String
+     * benutzt, weil der Hashwert in den gemappten Konto-Logs gespeichert ist. Eine Transaction
+     * darf nicht geändert werden, solange sie in einer hashbasierten Collection liegt (z.B. in
+     * einem Konto der {@link PrivateBank}), sonst wird sie dort nicht mehr gefunden.
+     *
+     * @return Hashwert aus Datum, Amount und Description
+     */
+    @Override
+    public int hashCode() {
+        int dateHash = epochDay == TransactionDates.UNDATED ? Objects.hashCode(undatedDate) : TransactionDates.hashCode(epochDay);
+        // same as Objects.hash(date, amountCents, description)
+        return 31 * (31 * (31 + dateHash) + Long.hashCode(amountCents)) + Objects.hashCode(description);
+    }
 }
@@ -0,0 +1,100 @@
+package bank;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Helpers for transaction dates.
+ * <p>
+ * Transactions carry their date as a {@code dd.MM.yyyy} string. For indexing and range queries
+ * the date is converted to an epoch day ({@link LocalDate#toEpochDay()}), which orders like the
+ * date itself and fits in a {@code long}. Dates that cannot be parsed map to {@link #UNDATED},
+ * which sorts before every real date and is never part of a date range.
+ */
+final class TransactionDates {
+
+    /**
+     * Epoch day used for missing or unparseable dates.
+     */
+    static final long UNDATED = Long.MIN_VALUE;
+
+    private TransactionDates() {
+    }
+
+    /**
+     * Converts a {@code dd.MM.yyyy} date to an epoch day. The format is checked by hand, so
+     * invalid dates cost no exception in the common case.
+     *
+     * @param date the date, e.g. "24.12.2024"
+     * @return the epoch day, or {@link #UNDATED} if the date is null or not a valid date
+     */
+    static long toEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') return UNDATED;
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+        if (day < 0 || month < 0 || year < 0) return UNDATED;
+        try {
+            return LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return UNDATED; // e.g. 31.02.2024
+        }
+    }
+
+    /**
+     * Converts an epoch day back to a {@code dd.MM.yyyy} date; the inverse of
+     * {@link #toEpochDay(String)} for every date it accepts.
+     *
+     * @param epochDay the epoch day of a date in the years 0 to 9999
+     * @return the formatted date
+     */
+    static String format(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        char[] chars = new char[10];
+        put(chars, 0, date.getDayOfMonth(), 2);
+        chars[2] = '.';
+        put(chars, 3, date.getMonthValue(), 2);
+        chars[5] = '.';
+        put(chars, 6, date.getYear(), 4);
+        return new String(chars);
+    }
+
+    /**
+     * Computes {@code format(epochDay).hashCode()} without creating the string.
+     *
+     * @param epochDay the epoch day of a date in the years 0 to 9999
+     * @return the hash code of the formatted date
+     */
+    static int hashCode(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int hash = hashDigits(0, date.getDayOfMonth(), 2);
+        hash = 31 * hash + '.';
+        hash = hashDigits(hash, date.getMonthValue(), 2);
+        hash = 31 * hash + '.';
+        return hashDigits(hash, date.getYear(), 4);
+    }
+
+    private static int hashDigits(int hash, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            hash = 31 * hash + ('0' + value / divisor % 10);
+        }
+        return hash;
+    }
+
+    private static void put(char[] chars, int from, int value, int width) {
+        for (int i = from + width - 1; i >= from; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,209 @@
+package bank;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only journal of the mutations of a single account.
+ * <p>
+ * Every mutation is written as one JSON line ("Konto [Name].journal"), so the cost of
+ * an append does not depend on the size of the account. On load the journal is replayed
+ * on top of the snapshot file. Replaying is idempotent: an ADD of a transaction that is
+ * already present and a REMOVE of a missing transaction are skipped, which keeps recovery
+ * correct if the bank crashed between writing a snapshot and deleting the journal.
+ */
+class TransactionJournal {
+
+    /**
+     * The kind of mutation stored in a journal record.
+     */
+    enum Operation { ADD, REMOVE }
+
+    /**
+     * One journal record: a mutation together with the affected transaction.
+     */
+    static final class Entry {
+        final Operation operation;
+        final Transaction transaction;
+
+        Entry(Operation operation, Transaction transaction) {
+            this.operation = operation;
+            this.transaction = transaction;
+        }
+    }
+
+    /**
+     * The path of the journal file.
+     */
+    private final Path path;
+
+    /**
+     * Creates a journal for the given account inside the given directory.
+     *
+     * @param directoryName the directory holding the account files
+     * @param account       the name of the account
+     */
+    TransactionJournal(String directoryName, String account) {
+        this.path = Paths.get(directoryName, fileName(account));
+    }
+
+    /**
+     * Returns the journal file name for an account.
+     *
+     * @param account the name of the account
+     * @return the file name "Konto [Name].journal"
+     */
+    static String fileName(String account) {
+        return "Konto " + account + ".journal";
+    }
+
+    /**
+     * Appends one record to the end of the journal.
+     *
+     * @param operation   the kind of mutation
+     * @param transaction the affected transaction
+     * @throws IOException if writing to the file fails
+     */
+    void append(Operation operation, Transaction transaction) throws IOException {
+        append(List.of(new Entry(operation, transaction)), false);
+    }
+
+    /**
+     * Appends several records to the end of the journal with a single write.
+     *
+     * @param entries the records to append, in mutation order
+     * @param sync    true to force the records to the storage device before returning
+     * @throws IOException if writing to the file fails
+     */
+    void append(List<Entry> entries, boolean sync) throws IOException {
+        StringWriter lines = new StringWriter();
+        for (Entry entry : entries) {
+            JsonWriter record = TransactionJson.COMPACT.newJsonWriter(lines);
+            record.beginObject();
+            record.name("op").value(entry.operation.name());
+            record.name("transaction");
+            TransactionJson.ADAPTER.write(record, entry.transaction);
+            record.endObject();
+            record.flush();
+            lines.append(System.lineSeparator());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            if (sync) channel.force(false);
+        }
+    }
+
+    /**
+     * Replays all records of the journal onto the given transactions.
+     * <p>
+     * A malformed last line is the result of a crash during an append and is ignored;
+     * a malformed line anywhere else means the journal is corrupt. The torn line is cut off
+     * the file (and a missing line break after a complete last record is written), so the
+     * next append starts on a line of its own instead of being glued onto the broken one.
+     *
+     * @param transactions the transactions to apply the records to
+     * @return the number of records in the journal
+     * @throws IOException if reading the file fails or the journal is corrupt
+     */
+    int replay(Collection<Transaction> transactions) throws IOException {
+        if (!Files.exists(path)) return 0;
+        long size = Files.size(path);
+        int records = 0;
+        long offset = 0;
+        long torn = -1;
+        boolean terminated = true;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            while (offset < size) {
+                long start = offset;
+                bytes.reset();
+                int b;
+                while ((b = in.read()) != -1 && b != '\n') bytes.write(b);
+                terminated = b == '\n';
+                offset += bytes.size() + (terminated ? 1 : 0);
+                if (!terminated && b == -1 && offset < size) {
+                    throw new IOException("Journal " + path + " was truncated while it was read");
+                }
+                String line = bytes.toString(StandardCharsets.UTF_8);
+                if (line.isBlank()) continue;
+                Entry entry;
+                try {
+                    entry = parse(line.strip());
+                } catch (IOException | JsonParseException | IllegalStateException | IllegalArgumentException e) {
+                    if (offset < size) throw new IOException("Corrupt journal record in " + path + ": " + line, e);
+                    torn = start;
+                    break;
+                }
+                Operation operation = entry.operation;
+                Transaction transaction = entry.transaction;
+                if (operation == Operation.ADD && !transactions.contains(transaction)) {
+                    transactions.add(transaction);
+                } else if (operation == Operation.REMOVE) {
+                    transactions.remove(transaction);
+                }
+                records++;
+            }
+        }
+        if (torn >= 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(torn);
+                channel.force(false);
+            }
+        } else if (!terminated) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Parses one journal line with the streaming reader.
+     *
+     * @param line the line
+     * @return the record
+     * @throws IOException if the line is not a complete record
+     */
+    private static Entry parse(String line) throws IOException {
+        JsonReader reader = TransactionJson.COMPACT.newJsonReader(new StringReader(line));
+        Operation operation = null;
+        Transaction transaction = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "op": operation = Operation.valueOf(reader.nextString()); break;
+                case "transaction": transaction = TransactionJson.ADAPTER.read(reader); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (operation == null || transaction == null) throw new IOException("Incomplete journal record");
+        return new Entry(operation, transaction);
+    }
+
+    /**
+     * Deletes the journal file, typically after its records were compacted into the snapshot.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,37 @@
+package bank;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+
+/**
+ * Shared, preconfigured JSON components for all persistence code of the bank.
+ * <p>
+ * Gson instances and the {@link TransactionSerializer} are thread-safe and stateless, so they
+ * are built once; their adapter caches are warm after the first use instead of being rebuilt
+ * for every file or journal record that is written.
+ */
+final class TransactionJson {
+
+    /**
+     * The streaming adapter for the {@link Transaction} hierarchy.
+     */
+    static final TypeAdapter<Transaction> ADAPTER = new TransactionSerializer();
+
+    /**
+     * Compact Gson, one value per line (journal records).
+     */
+    static final Gson COMPACT = new GsonBuilder()
+            .registerTypeAdapter(Transaction.class, ADAPTER)
+            .create();
+
+    /**
+     * Pretty-printing Gson (account files).
+     */
+    static final Gson PRETTY = COMPACT.newBuilder()
+            .setPrettyPrinting()
+            .create();
+
+    private TransactionJson() {
+    }
+}
@@ -1,58 +1,216 @@
 package bank;
 
+import bank.exceptions.TransactionAttributeException;
 import com.google.gson.*;
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * Custom Serializer and Deserializer for {@link Transaction} objects using Gson.
+ * Streaming Gson adapter for {@link Transaction} objects.
  * <p>
  * This class solves the problem of polymorphic deserialization by adding a custom
  * property "CLASSNAME" to the JSON output. This ensures that when reading the file,
  * we know whether to create a {@link Payment}, {@link Transfer}, etc.
+ * <p>
+ * The known subclasses are kept in a registry that maps the type tag to a factory, so no
+ * reflection and no intermediate {@link JsonObject} tree is needed per record. Since the tag
+ * is written last, the reader collects all attributes first and creates the object at the end
+ * of the JSON object. The JSON format is the same as the one produced by Gson's reflective
+ * serialization: attributes of the subclass first, then date, amount, description and the tag.
  */
-public class TransactionSerializer implements JsonSerializer<Transaction>, JsonDeserializer<Transaction> {
+public class TransactionSerializer extends TypeAdapter<Transaction> {
+
+    /**
+     * Name of the property holding the type tag.
+     */
+    private static final String TYPE_PROPERTY = "CLASSNAME";
+
+    /**
+     * Creates a transaction from the attributes read from JSON.
+     */
+    @FunctionalInterface
+    private interface Factory {
+        Transaction create(Attributes attributes) throws TransactionAttributeException;
+    }
+
+    /**
+     * Factories of the known transaction types, by type tag.
+     */
+    private static final Map<String, Factory> FACTORIES = new HashMap<>();
+
+    /**
+     * Type tags of the known transaction types, by class.
+     */
+    private static final Map<Class<? extends Transaction>, String> TAGS = new HashMap<>();
+
+    static {
+        register(Payment.class, a -> {
+            Payment payment = new Payment(a.date, 0, a.description);
+            payment.setIncomingInterest(a.incomingInterest);
+            payment.setOutgoingInterest(a.outgoingInterest);
+            return a.complete(payment);
+        });
+        register(Transfer.class, a -> a.complete(new Transfer(a.date, 0, a.description, a.sender, a.recipient)));
+        register(IncomingTransfer.class,
+                a -> a.complete(new IncomingTransfer(a.date, 0, a.description, a.sender, a.recipient)));
+        register(OutgoingTransfer.class,
+                a -> a.complete(new OutgoingTransfer(a.date, 0, a.description, a.sender, a.recipient)));
+    }
+
+    private static void register(Class<? extends Transaction> type, Factory factory) {
+        FACTORIES.put(type.getSimpleName(), factory);
+        TAGS.put(type, type.getSimpleName());
+    }
+
+    /**
+     * @param transaction the transaction
+     * @return the "CLASSNAME" type tag of the transaction, or null if its type is not registered
+     */
+    static String tagOf(Transaction transaction) {
+        return TAGS.get(transaction.getClass());
+    }
 
     /**
-     * Serializes a Transaction object into a JSON element.
-     * Adds the "CLASSNAME" property containing the specific class name (e.g., "Payment").
+     * Creates a transaction from its attributes, for formats other than JSON that use the same
+     * type tags.
      *
-     * @param src       the source Transaction object
-     * @param typeOfSrc the type of the source object
-     * @param context   the serialization context
-     * @return the resulting JsonElement with the added CLASSNAME property
+     * @return the transaction, or null if the tag is unknown
+     * @throws TransactionAttributeException if the attributes are invalid
      */
-    @Override
-    public JsonElement serialize(Transaction src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject jsonObject = context.serialize(src).getAsJsonObject();
-        jsonObject.addProperty("CLASSNAME", src.getClass().getSimpleName());
-        return jsonObject;
+    static Transaction create(String tag, String date, long amountCents, String description,
+                              double incomingInterest, double outgoingInterest, String sender, String recipient)
+            throws TransactionAttributeException {
+        Factory factory = FACTORIES.get(tag);
+        if (factory == null) return null;
+        Attributes attributes = new Attributes();
+        attributes.date = date;
+        attributes.amountCents = amountCents;
+        attributes.description = description;
+        attributes.incomingInterest = incomingInterest;
+        attributes.outgoingInterest = outgoingInterest;
+        attributes.sender = sender;
+        attributes.recipient = recipient;
+        return factory.create(attributes);
     }
 
     /**
-     * Deserializes a JSON element back into a specific Transaction subclass.
-     * Uses the "CLASSNAME" property to determine which class to instantiate.
+     * Attributes of a transaction collected while reading a JSON object.
+     * Missing attributes keep their default values, as with reflective deserialization.
+     */
+    private static final class Attributes {
+        String date;
+        long amountCents;
+        String description;
+        double incomingInterest;
+        double outgoingInterest;
+        String sender;
+        String recipient;
+
+        /**
+         * Sets the exact amount, bypassing the rounding of the {@code double} constructors.
+         */
+        Transaction complete(Transaction transaction) {
+            transaction.amountCents = amountCents;
+            return transaction;
+        }
+    }
+
+    /**
+     * Writes a transaction as a JSON object including the "CLASSNAME" property.
      *
-     * @param json    the JSON element to deserialize
-     * @param typeOfT the type of the object to deserialize to
-     * @param context the deserialization context
-     * @return the deserialized Transaction object
-     * @throws JsonParseException if the CLASSNAME property is missing or the class is unknown
+     * @param out the writer
+     * @param src the transaction, may be null
+     * @throws IOException     if writing fails
+     * @throws JsonIOException if the transaction type is not registered
      */
     @Override
-    public Transaction deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        JsonObject jsonObject = json.getAsJsonObject();
+    public void write(JsonWriter out, Transaction src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        String tag = tagOf(src);
+        if (tag == null) throw new JsonIOException("Unknown transaction type: " + src.getClass().getName());
 
-        if (!jsonObject.has("CLASSNAME")) {
-            throw new JsonParseException("Missing 'CLASSNAME' property in JSON: " + jsonObject);
+        out.beginObject();
+        if (src instanceof Payment) {
+            Payment payment = (Payment) src;
+            out.name("incomingInterest").value(payment.getIncomingInterest());
+            out.name("outgoingInterest").value(payment.getOutgoingInterest());
+        } else if (src instanceof Transfer) {
+            Transfer transfer = (Transfer) src;
+            out.name("sender").value(transfer.getSender());
+            out.name("recipient").value(transfer.getRecipient());
         }
+        out.name("date").value(src.getDate());
+        out.name("amount").value(Money.toUnits(src.amountCents));
+        out.name("description").value(src.description);
+        out.name(TYPE_PROPERTY).value(tag);
+        out.endObject();
+    }
 
-        String className = jsonObject.get("CLASSNAME").getAsString();
+    /**
+     * Reads a JSON object and creates the subclass named by its "CLASSNAME" property.
+     *
+     * @param in the reader
+     * @return the transaction, or null for a JSON null
+     * @throws IOException        if reading fails
+     * @throws JsonParseException if the CLASSNAME property is missing, the class is unknown
+     *                            or the attributes are invalid
+     */
+    @Override
+    public Transaction read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Attributes attributes = new Attributes();
+        String tag = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String property = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (property) {
+                case "date": attributes.date = in.nextString(); break;
+                case "amount": attributes.amountCents = readCents(in); break;
+                case "description": attributes.description = in.nextString(); break;
+                case "incomingInterest": attributes.incomingInterest = in.nextDouble(); break;
+                case "outgoingInterest": attributes.outgoingInterest = in.nextDouble(); break;
+                case "sender": attributes.sender = in.nextString(); break;
+                case "recipient": attributes.recipient = in.nextString(); break;
+                case TYPE_PROPERTY: tag = in.nextString(); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (tag == null) {
+            throw new JsonParseException("Missing 'CLASSNAME' property at " + in.getPath());
+        }
+        Factory factory = FACTORIES.get(tag);
+        if (factory == null) {
+            throw new JsonParseException("Unknown class: " + tag);
+        }
+        try {
+            return factory.create(attributes);
+        } catch (TransactionAttributeException e) {
+            throw new JsonParseException("Invalid " + tag + " at " + in.getPath(), e);
+        }
+    }
 
+    private static long readCents(JsonReader in) throws IOException {
+        String amount = in.nextString();
         try {
-            Class<?> clazz = Class.forName("bank." + className);
-            return context.deserialize(json, clazz);
-        } catch (ClassNotFoundException e) {
-            throw new JsonParseException("Unknown class: " + className, e);
+            return Money.toCents(amount);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new JsonParseException("Invalid amount '" + amount + "' at " + in.getPath(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package bank;
 
 import bank.exceptions.*;
+import java.util.Objects;
 
 
 /**
@@ -59,7 +60,7 @@ public class Transfer extends Transaction {
             throw new TransactionAttributeException("falsche");
         }
         else
-        {this.amount = amount;}
+        {this.amountCents = Money.toCents(amount);}
     }
 
     //DESCRIPTION
@@ -159,7 +160,7 @@ public class Transfer extends Transaction {
      */
     public Transfer (Transfer andere) throws TransactionAttributeException{
 
-        this(andere.date, andere.amount, andere.description, andere.sender, andere.recipient);
+        this(andere.getDate(), andere.getAmount(), andere.description, andere.sender, andere.recipient);
 
     }
 
@@ -178,11 +179,11 @@ public class Transfer extends Transaction {
     }
 
     /**
-     * @return Wert ohne Änderung von Amount
+     * @return Wert ohne Änderung von Amount, in Cent
      */
     @Override
-    public double calculate() {
-        return amount;
+    public long calculateCents() {
+        return amountCents;
     }
 
     /**
@@ -215,6 +216,16 @@ public class Transfer extends Transaction {
         boolean recipientMatch = (this.recipient == null) ? (other.recipient == null) : this.recipient.equals(other.recipient);
         return senderMatch && recipientMatch;
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code of the superclass fields combined with sender and recipient
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hash(sender, recipient);
+    }
     @Override
     public String error(){
 
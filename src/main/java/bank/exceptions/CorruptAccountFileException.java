@@ -0,0 +1,17 @@
+package bank.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an account file cannot be read or does not match its checksum.
+ * The bank moves such files into its quarantine directory.
+ */
+public class CorruptAccountFileException extends IOException {
+    public CorruptAccountFileException(String message) {
+        super(message);
+    }
+
+    public CorruptAccountFileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,147 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarBankTest {
+
+    private ColumnarBank bank;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bank = new ColumnarBank("ColumnarBank", 0.1, 0.1);
+        bank.createAccount("TestUser");
+    }
+
+    @Test
+    void testAddRemoveAndQueries() throws Exception {
+        Payment deposit = new Payment("01.01.2024", 100.0, "Deposit", 0, 0);
+        Payment withdrawal = new Payment("02.01.2024", -50.0, "Withdrawal", 0, 0);
+        IncomingTransfer incoming = new IncomingTransfer("03.01.2024", 30.0, "Gift", "Oma", "TestUser");
+        OutgoingTransfer outgoing = new OutgoingTransfer("04.01.2024", 20.0, "Rent", "TestUser", "Landlord");
+        bank.addTransaction("TestUser", deposit);
+        bank.addTransaction("TestUser", withdrawal);
+        bank.addTransaction("TestUser", incoming);
+        bank.addTransaction("TestUser", outgoing);
+
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("TestUser", incoming));
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("TestUser"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Nobody", incoming));
+
+        // 90 (deposit minus 10% interest) - 55 (withdrawal plus 10% interest) + 30 - 20
+        assertEquals(45.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertEquals(List.of(deposit, withdrawal, incoming, outgoing), bank.getTransactions("TestUser"));
+        assertEquals(List.of(withdrawal, outgoing, incoming, deposit), bank.getTransactionsSorted("TestUser", true));
+        assertEquals(List.of(deposit, incoming, outgoing, withdrawal), bank.getTransactionsSorted("TestUser", false));
+        assertEquals(List.of(deposit, incoming), bank.getTransactionsByType("TestUser", true));
+        assertEquals(List.of(withdrawal, outgoing), bank.getTransactionsByType("TestUser", false));
+        assertEquals(List.of(withdrawal, incoming), bank.getTransactions("TestUser", 1, 2));
+        assertEquals(List.of(incoming, outgoing),
+                bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 31)));
+        assertEquals(35.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 1, 2)), 0.001);
+
+        bank.removeTransaction("TestUser", withdrawal);
+        assertFalse(bank.containsTransaction("TestUser", withdrawal));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("TestUser", withdrawal));
+        assertEquals(100.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertEquals(3, bank.getTransactionCount("TestUser"));
+    }
+
+    /**
+     * Unparseable dates and null attributes survive the columnar encoding unchanged.
+     */
+    @Test
+    void testIrregularAttributesRoundTrip() throws Exception {
+        Transfer odd = new Transfer("Ende 2024", 12.34, null, null, "TestUser");
+        Payment undated = new Payment(null, 5.0, "No date");
+        bank.addTransaction("TestUser", odd);
+        bank.addTransaction("TestUser", undated);
+
+        List<Transaction> stored = bank.getTransactions("TestUser");
+        assertEquals(List.of(odd, undated), stored);
+        assertEquals("Ende 2024", stored.get(0).getDate());
+        assertNull(stored.get(1).getDate());
+        assertTrue(bank.getTransactionsBetween("TestUser", LocalDate.MIN, LocalDate.MAX).isEmpty());
+    }
+
+    /**
+     * The default bulk import adds all transactions or, if one is rejected, none.
+     */
+    @Test
+    void testBulkImportRollsBack() throws Exception {
+        Payment first = new Payment("01.01.2024", 10.0, "First");
+        Payment second = new Payment("02.01.2024", 20.0, "Second");
+        assertEquals(2, bank.addTransactions("TestUser", List.of(first, second)));
+        IncomingTransfer third = new IncomingTransfer("03.01.2024", 30.0, "Third", "X", "TestUser");
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransactions("TestUser", List.of(third, first)));
+        assertEquals(List.of(first, second), bank.getTransactions("TestUser"));
+    }
+
+    /**
+     * The prefix sums behind balance-as-of queries follow appends and removals in and out of
+     * date order.
+     */
+    @Test
+    void testBalanceAsOfFollowsChanges() throws Exception {
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            // days in date order first, then out of order
+            int day = i < 30 ? 1 + i / 2 : 28 - i % 28;
+            Transaction t = new IncomingTransfer(String.format("%02d.01.2024", day), 1.0 + i, "T" + i, "X", "TestUser");
+            bank.addTransaction("TestUser", t);
+            added.add(t);
+            if (i % 7 == 0) assertBalancesAsOf();
+            if (i % 11 == 5) {
+                bank.removeTransaction("TestUser", added.remove(added.size() / 2));
+                assertBalancesAsOf();
+            }
+        }
+        bank.addTransaction("TestUser", new Payment("undated", 1000.0, "Undated"));
+        bank.removeTransaction("TestUser", added.get(added.size() - 1));
+        assertBalancesAsOf();
+    }
+
+    private void assertBalancesAsOf() {
+        for (int day = 0; day <= 31; day++) {
+            LocalDate date = LocalDate.of(2024, 1, 1).plusDays(day - 1);
+            long expected = 0;
+            for (Transaction t : bank.getTransactions("TestUser")) {
+                if (t.getEpochDay() != TransactionDates.UNDATED && t.getEpochDay() <= date.toEpochDay()) {
+                    expected += t.calculateCents();
+                }
+            }
+            assertEquals(Money.toUnits(expected), bank.getBalanceAsOf("TestUser", date), 0.001);
+        }
+    }
+
+    /**
+     * Removing most rows compacts the table without losing the order or the duplicate index.
+     */
+    @Test
+    void testRemovalsCompactTable() throws Exception {
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Transaction t = new IncomingTransfer("01.01.2024", 1.0, "Transfer number " + i, "Sender", "TestUser");
+            bank.addTransaction("TestUser", t);
+            added.add(t);
+        }
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0) bank.removeTransaction("TestUser", added.get(i));
+        }
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 10) expected.add(added.get(i));
+
+        assertEquals(expected, bank.getTransactions("TestUser"));
+        assertEquals(100.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("TestUser", added.get(990)));
+        bank.addTransaction("TestUser", added.get(1));
+        assertTrue(bank.containsTransaction("TestUser", added.get(1)));
+        assertEquals(101, bank.getTransactionCount("TestUser"));
+    }
+}
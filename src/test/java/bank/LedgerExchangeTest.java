@@ -0,0 +1,156 @@
+package bank;
+
+import bank.exceptions.AccountDoesNotExistException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerExchangeTest {
+
+    private static final String TEST_DIR = "TestBankLedger";
+    private static final Path LEDGER_DIR = Paths.get(TEST_DIR, "ledger");
+
+    private PrivateBank bank;
+
+    private void deleteRecursively(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                deleteRecursively(f);
+            }
+        }
+        file.delete();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        deleteRecursively(new File(TEST_DIR));
+        bank = new PrivateBank("LedgerBank", 0.05, 0.1, TEST_DIR + "/source");
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteRecursively(new File(TEST_DIR));
+    }
+
+    /**
+     * Attributes that need quoting or escaping, null values and unparseable dates survive an
+     * export and import in both formats; several accounts are transferred in parallel.
+     */
+    @Test
+    void testRoundTripInBothFormats() throws Exception {
+        List<Transaction> alice = List.of(
+                new Payment("01.01.2024", -12.35, "Rent, January"),
+                new IncomingTransfer("02.01.2024", 10.0, "Said \"thanks\"\nand left", "Oma", "Alice"),
+                new OutgoingTransfer("Ende 2024", 0.01, "", "Alice", null),
+                new Transfer(null, 5.5, null, "A", "B"));
+        bank.createAccount("Alice");
+        bank.addTransactions("Alice", alice);
+        bank.createAccount("Bob");
+        bank.addTransactions("Bob", IntStream.range(0, 25_000).mapToObj(i -> new Payment("03.01.2024", i, "Payment " + i)));
+
+        for (LedgerFormat format : LedgerFormat.values()) {
+            Path directory = LEDGER_DIR.resolve(format.name());
+            Map<String, Long> finished = new ConcurrentHashMap<>();
+            long exported = LedgerExchange.exportAccounts(bank, List.of("Alice", "Bob"), directory, format, 2,
+                    (account, transactions, done) -> { if (done) finished.put(account, transactions); });
+            assertEquals(25_004, exported);
+            assertEquals(Map.of("Alice", 4L, "Bob", 25_000L), finished);
+
+            PrivateBank target = new PrivateBank("Target", 0.05, 0.1, TEST_DIR + "/target-" + format.name());
+            List<Long> progress = new ArrayList<>();
+            long imported = LedgerExchange.importAccounts(target, directory, format, 2, (account, transactions, done) -> {
+                if (account.equals("Bob")) {
+                    synchronized (progress) {
+                        progress.add(transactions);
+                    }
+                }
+            });
+            assertEquals(25_004, imported);
+            assertEquals(List.of(10_000L, 20_000L, 25_000L), progress);
+            assertEquals(bank.getTransactions("Alice"), target.getTransactions("Alice"));
+            assertEquals(bank.getTransactions("Bob"), target.getTransactions("Bob"));
+            assertEquals("Ende 2024", target.getTransactions("Alice").get(2).getDate());
+            assertEquals(bank.getAccountBalanceCents("Bob"), target.getAccountBalanceCents("Bob"));
+        }
+    }
+
+    /**
+     * The CSV format has a fixed header and exact amounts.
+     */
+    @Test
+    void testCsvLayout() throws Exception {
+        bank.createAccount("Alice");
+        bank.addTransaction("Alice", new IncomingTransfer("02.01.2024", 10.0, "Gift, late", "Oma", "Alice"));
+        Path file = LEDGER_DIR.resolve("alice.csv");
+        Files.createDirectories(LEDGER_DIR);
+        LedgerExchange.exportAccount(bank, "Alice", file, LedgerFormat.CSV, LedgerExchange.ProgressListener.NONE);
+        assertEquals(List.of(CsvLedgerCodec.HEADER, "IncomingTransfer,02.01.2024,10.00,\"Gift, late\",,,Oma,Alice"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * An invalid record rejects the whole file: the transactions before it are not kept, and an
+     * account created by the import is deleted again, also on disk. An existing account is kept.
+     */
+    @Test
+    void testInvalidRecordRollsBackImport() throws Exception {
+        Files.createDirectories(LEDGER_DIR);
+        Path file = LEDGER_DIR.resolve(LedgerFormat.CSV.fileName("Carol"));
+        Files.write(file, List.of(CsvLedgerCodec.HEADER,
+                "Payment,01.01.2024,1.00,Fine,0.0,0.0,,",
+                "Bitcoin,02.01.2024,1.00,Unknown,,,,"), StandardCharsets.UTF_8);
+
+        IOException e = assertThrows(IOException.class,
+                () -> LedgerExchange.importAccounts(bank, LEDGER_DIR, LedgerFormat.CSV, 1, LedgerExchange.ProgressListener.NONE));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+        Payment probe = new Payment("03.01.2024", 1.0, "Probe");
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Carol", probe));
+        assertFalse(Files.exists(Paths.get(TEST_DIR, "source", "Konto Carol.json")));
+        assertThrows(AccountDoesNotExistException.class,
+                () -> new PrivateBank("Reloaded", 0.05, 0.1, TEST_DIR + "/source").addTransaction("Carol", probe));
+
+        bank.createAccount("Carol");
+        assertThrows(IOException.class,
+                () -> LedgerExchange.importAccount(bank, "Carol", file, LedgerFormat.CSV, LedgerExchange.ProgressListener.NONE));
+        bank.addTransaction("Carol", probe);
+        assertEquals(List.of(probe), bank.getTransactions("Carol"));
+    }
+
+    /**
+     * A bank that cannot delete accounts keeps the account of a failed import, without any of
+     * its transactions, and the unsupported deletion is attached to the failure.
+     */
+    @Test
+    void testFailedImportWithoutDeleteSupport() throws Exception {
+        Files.createDirectories(LEDGER_DIR);
+        Path file = LEDGER_DIR.resolve(LedgerFormat.CSV.fileName("Carol"));
+        Files.write(file, List.of(CsvLedgerCodec.HEADER,
+                "Payment,01.01.2024,1.00,Fine,0.0,0.0,,",
+                "Bitcoin,02.01.2024,1.00,Unknown,,,,"), StandardCharsets.UTF_8);
+        Bank legacy = new ColumnarBank("Legacy", 0.05, 0.1) {
+            @Override
+            public void deleteAccount(String account) {
+                throw new UnsupportedOperationException("Deleting accounts is not supported");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> LedgerExchange.importAccount(legacy, "Carol", file, LedgerFormat.CSV, LedgerExchange.ProgressListener.NONE));
+        assertInstanceOf(UnsupportedOperationException.class, e.getSuppressed()[0]);
+        assertTrue(legacy.getTransactions("Carol").isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package bank;
+
+import bank.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedBankTest {
+
+    private static final String TEST_DIR = "TestBankDataMapped";
+    private MappedBank bank;
+
+    private void cleanUpDirectory() {
+        File dir = new File(TEST_DIR);
+        if (dir.exists()) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cleanUpDirectory();
+        bank = new MappedBank("MappedBank", 0.1, 0.1, TEST_DIR);
+        bank.createAccount("TestUser");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        bank.close();
+        cleanUpDirectory();
+    }
+
+    @Test
+    void testAddRemoveAndQueries() throws Exception {
+        Payment deposit = new Payment("01.01.2024", 100.0, "Deposit", 0, 0);
+        Payment withdrawal = new Payment("02.01.2024", -50.0, "Withdrawal", 0, 0);
+        IncomingTransfer incoming = new IncomingTransfer("03.01.2024", 30.0, "Gift", "Oma", "TestUser");
+        OutgoingTransfer outgoing = new OutgoingTransfer("04.01.2024", 20.0, "Rent", "TestUser", "Landlord");
+        bank.addTransaction("TestUser", deposit);
+        bank.addTransaction("TestUser", withdrawal);
+        bank.addTransaction("TestUser", incoming);
+        bank.addTransaction("TestUser", outgoing);
+
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("TestUser", incoming));
+        assertThrows(AccountAlreadyExistsException.class, () -> bank.createAccount("TestUser"));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Nobody", incoming));
+
+        // 90 (deposit minus 10% interest) - 55 (withdrawal plus 10% interest) + 30 - 20
+        assertEquals(45.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertEquals(List.of(deposit, withdrawal, incoming, outgoing), bank.getTransactions("TestUser"));
+        assertEquals(List.of(withdrawal, outgoing, incoming, deposit), bank.getTransactionsSorted("TestUser", true));
+        assertEquals(List.of(deposit, incoming, outgoing, withdrawal), bank.getTransactionsSorted("TestUser", false));
+        assertEquals(List.of(deposit, incoming), bank.getTransactionsByType("TestUser", true));
+        assertEquals(List.of(withdrawal, outgoing), bank.getTransactionsByType("TestUser", false));
+        assertEquals(List.of(withdrawal, incoming), bank.getTransactions("TestUser", 1, 2));
+        assertEquals(List.of(incoming, outgoing),
+                bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 31)));
+        assertEquals(35.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 1, 2)), 0.001);
+
+        bank.removeTransaction("TestUser", withdrawal);
+        assertFalse(bank.containsTransaction("TestUser", withdrawal));
+        assertThrows(TransactionDoesNotExistException.class, () -> bank.removeTransaction("TestUser", withdrawal));
+        assertEquals(100.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertEquals(3, bank.getTransactionCount("TestUser"));
+    }
+
+    @Test
+    void testLogGrowsAndSurvivesReopen() throws Exception {
+        for (int i = 0; i < 3000; i++) {
+            bank.addTransaction("TestUser", new IncomingTransfer("01.01.2024", 1.0, "Transfer number " + i, "Sender", "TestUser"));
+        }
+        Transfer removed = new IncomingTransfer("01.01.2024", 1.0, "Transfer number 7", "Sender", "TestUser");
+        bank.removeTransaction("TestUser", removed);
+        bank.close();
+
+        bank = new MappedBank("MappedBank", 0.1, 0.1, TEST_DIR);
+        assertEquals(2999, bank.getTransactionCount("TestUser"));
+        assertEquals(2999.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertFalse(bank.containsTransaction("TestUser", removed));
+        assertTrue(bank.containsTransaction("TestUser",
+                new IncomingTransfer("01.01.2024", 1.0, "Transfer number 2999", "Sender", "TestUser")));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.addTransaction("TestUser",
+                new IncomingTransfer("01.01.2024", 1.0, "Transfer number 0", "Sender", "TestUser")));
+    }
+
+    /**
+     * Pages continue where the previous one ended, also after removals before and behind it.
+     */
+    @Test
+    void testPagesFollowRemovals() throws Exception {
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction t = new IncomingTransfer("01.01.2024", 1.0, "Transfer number " + i, "Sender", "TestUser");
+            bank.addTransaction("TestUser", t);
+            expected.add(t);
+        }
+        for (int round = 0; round < 4; round++) {
+            for (int offset = 0; offset < expected.size(); offset += 7) {
+                assertEquals(expected.subList(offset, Math.min(offset + 7, expected.size())),
+                        bank.getTransactions("TestUser", offset, 7));
+                if (offset == 21) bank.removeTransaction("TestUser", expected.remove(3 + round));
+                if (offset == 42) bank.removeTransaction("TestUser", expected.remove(expected.size() - 1 - round));
+            }
+            assertEquals(expected.subList(10, 15), bank.getTransactions("TestUser", 10, 5));
+        }
+        assertEquals(List.of(), bank.getTransactions("TestUser", 92, 10));
+        assertEquals(List.of(), bank.getTransactions("Nobody", 0, 10));
+    }
+}
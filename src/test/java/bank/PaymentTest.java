@@ -48,6 +48,22 @@ public class PaymentTest {
         assertEquals(-120.0, outgoing.calculate(), 0.001);
     }
 
+    @Test
+    void testCalculateRoundsInterestHalfEven() throws TransactionAttributeException {
+        // 100.05 * 0.1 = 10.005 -> 10.00 (half-even), 100.15 * 0.1 = 10.015 -> 10.02
+        assertEquals(9005, new Payment("12.03.2024", 100.05, "Even", 0.1, 0.2).calculateCents());
+        assertEquals(9013, new Payment("12.03.2024", 100.15, "Up", 0.1, 0.2).calculateCents());
+        assertEquals(-12006, new Payment("12.03.2024", -100.05, "Out", 0.1, 0.2).calculateCents());
+    }
+
+    @Test
+    void testAmountIsExactInCents() throws TransactionAttributeException {
+        Payment small = new Payment("12.03.2024", 0.1, "Dime", 0.0, 0.0);
+        Payment other = new Payment("12.03.2024", 0.2, "Dime", 0.0, 0.0);
+        assertEquals(30, small.getAmountCents() + other.getAmountCents());
+        assertEquals(0.3, (small.calculateCents() + other.calculateCents()) / 100.0);
+    }
+
     @Test
     void testEquals() throws TransactionAttributeException {
         Payment same = new Payment("12.03.2024", 100.0, "Test Payment", 0.1, 0.2);
@@ -57,6 +73,15 @@ public class PaymentTest {
         assertNotEquals(payment, different);
     }
 
+    @Test
+    void testHashCodeConsistentWithEquals() throws TransactionAttributeException {
+        Payment same = new Payment("12.03.2024", 100.0, "Test Payment", 0.1, 0.2);
+        Transfer transfer = new Transfer("12.03.2024", 100.0, "Test Payment");
+
+        assertEquals(payment.hashCode(), same.hashCode());
+        assertNotEquals(payment, transfer); // different classes must not throw
+    }
+
     @Test
     void testToString() {
         String result = payment.toString();
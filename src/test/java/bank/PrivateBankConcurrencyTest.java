@@ -0,0 +1,170 @@
+package bank;
+
+import bank.exceptions.AccountDoesNotExistException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-threaded stress test for PrivateBank.
+ * Many writers mutate a few shared accounts while readers poll them; afterwards
+ * no update may be lost, neither in memory nor in the reloaded JSON files.
+ */
+public class PrivateBankConcurrencyTest {
+
+    private static final String TEST_DIR = "TestBankDataConcurrency";
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS = 4;
+    private static final int TRANSACTIONS_PER_THREAD = 200;
+
+    private void cleanUpDirectory() {
+        File dir = new File(TEST_DIR);
+        if (dir.exists()) {
+            deleteRecursively(dir); // including the quarantine directory
+        }
+    }
+
+    private void deleteRecursively(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                deleteRecursively(f);
+            }
+        }
+        file.delete();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cleanUpDirectory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUpDirectory();
+    }
+
+    /**
+     * Runs the stress test once per persistence mode:
+     * 0 = snapshot rewrite, 1 = journaling, 2 = journaling with group commit.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2})
+    void testConcurrentWritersLoseNoUpdates(int mode) throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(mode >= 1);
+        options.setCompactionThreshold(50);
+        options.setGroupCommit(mode == 2);
+
+        try (PrivateBank bank = new PrivateBank("StressBank", 0.1, 0.1, TEST_DIR, options)) {
+            for (int a = 0; a < ACCOUNTS; a++) bank.createAccount("Account" + a);
+
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+                        String account = "Account" + (i % ACCOUNTS);
+                        Transfer transfer = new IncomingTransfer("01.01.2024", 1.0, "T" + thread + "-" + i, "Sender", account);
+                        bank.addTransaction(account, transfer);
+                        if (i % 10 == 0) bank.removeTransaction(account, transfer);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        for (int a = 0; a < ACCOUNTS; a++) {
+                            bank.getAccountBalance("Account" + a);
+                            bank.getTransactionsSorted("Account" + a, true);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) writer.get(60, TimeUnit.SECONDS);
+            writing.set(false);
+            for (Future<?> reader : readers) reader.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+
+            int removedPerThread = (TRANSACTIONS_PER_THREAD + 9) / 10;
+            int expected = THREADS * (TRANSACTIONS_PER_THREAD - removedPerThread);
+            int total = 0;
+            for (int a = 0; a < ACCOUNTS; a++) total += bank.getTransactions("Account" + a).size();
+            assertEquals(expected, total, "No update may be lost in memory");
+            assertEquals(expected, sumBalances(bank), 0.0001);
+        }
+
+        PrivateBank reloaded = new PrivateBank("StressBank", 0.1, 0.1, TEST_DIR);
+        int expected = THREADS * (TRANSACTIONS_PER_THREAD - (TRANSACTIONS_PER_THREAD + 9) / 10);
+        int total = 0;
+        for (int a = 0; a < ACCOUNTS; a++) total += reloaded.getTransactions("Account" + a).size();
+        assertEquals(expected, total, "No update may be lost on disk");
+    }
+
+    /**
+     * Writers that looked up an account before it was deleted must not bring it back:
+     * once the account is gone, every writer fails and no file of it survives.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2})
+    void testDeletedAccountStaysDeleted(int mode) throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(mode >= 1);
+        options.setGroupCommit(mode == 2);
+
+        try (PrivateBank bank = new PrivateBank("StressBank", 0.1, 0.1, TEST_DIR, options)) {
+            bank.createAccount("Doomed");
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch started = new CountDownLatch(THREADS * 10);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; ; i++) {
+                        try {
+                            bank.addTransaction("Doomed", new Payment("01.01.2024", 1.0, "T" + thread + "-" + i));
+                        } catch (AccountDoesNotExistException e) {
+                            return null;
+                        }
+                        started.countDown();
+                    }
+                }));
+            }
+            assertTrue(started.await(60, TimeUnit.SECONDS));
+            bank.deleteAccount("Doomed");
+            for (Future<?> writer : writers) writer.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+            bank.flush();
+
+            assertThrows(AccountDoesNotExistException.class, () -> bank.addTransaction("Doomed", new Payment("02.01.2024", 1.0, "Late")));
+        }
+
+        assertFalse(new File(TEST_DIR, "Konto Doomed.json").exists());
+        assertFalse(new File(TEST_DIR, "Konto Doomed.journal").exists());
+        PrivateBank reloaded = new PrivateBank("StressBank", 0.1, 0.1, TEST_DIR);
+        assertThrows(AccountDoesNotExistException.class, () -> reloaded.addTransaction("Doomed", new Payment("02.01.2024", 1.0, "Late")));
+    }
+
+    private double sumBalances(PrivateBank bank) {
+        double sum = 0;
+        for (int a = 0; a < ACCOUNTS; a++) sum += bank.getAccountBalance("Account" + a);
+        return sum;
+    }
+}
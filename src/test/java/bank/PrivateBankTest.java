@@ -6,7 +6,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,14 +32,18 @@ public class PrivateBankTest {
     private void cleanUpDirectory() {
         File dir = new File(TEST_DIR);
         if (dir.exists()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File f : files) {
-                    f.delete(); // Delete file "Konto X.json"
-                }
+            deleteRecursively(dir); // Delete folder "TestBankData" including the quarantine
+        }
+    }
+
+    private void deleteRecursively(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                deleteRecursively(f); // Delete file "Konto X.json"
             }
-            dir.delete(); // Delete folder "TestBankData"
         }
+        file.delete();
     }
 
     @BeforeEach
@@ -85,6 +95,19 @@ public class PrivateBankTest {
         assertTrue(f.length() > 0);
     }
 
+    @Test
+    void testAddDuplicateTransactionThrowsException() throws Exception {
+        bank.addTransaction("TestUser", new IncomingTransfer("01.01.2024", 50.0, "Gift", "Oma", "TestUser"));
+        bank.addTransaction("TestUser", new Payment("01.01.2024", 100.0, "Test", 0.1, 0.1));
+
+        assertThrows(TransactionAlreadyExistException.class, () ->
+                bank.addTransaction("TestUser", new Payment("01.01.2024", 100.0, "Test", 0.1, 0.1)));
+        assertThrows(TransactionAlreadyExistException.class, () ->
+                bank.createAccount("Other", List.of(
+                        new Transfer("01.01.2024", 10.0, "Dup", "A", "B"),
+                        new Transfer("01.01.2024", 10.0, "Dup", "A", "B"))));
+    }
+
     @Test
     void testRemoveTransaction() throws Exception {
         Payment p = new Payment("01.01.2024", 100.0, "Test", 0.1, 0.1);
@@ -103,6 +126,33 @@ public class PrivateBankTest {
         assertEquals(90.0, bank.getAccountBalance("TestUser"));
     }
 
+    /**
+     * The cached balance follows adds and removes, and the verification mode
+     * detects a balance that drifted because a stored transaction was modified.
+     */
+    @Test
+    void testBalanceCacheAndVerification() throws Exception {
+        Payment p = new Payment("01.01.2024", 100.0, "Test", 0.1, 0.1);
+        Transfer t = new IncomingTransfer("02.01.2024", 50.0, "Gift", "Oma", "TestUser");
+        bank.addTransaction("TestUser", p);
+        bank.addTransaction("TestUser", t);
+        bank.removeTransaction("TestUser", t);
+        assertEquals(90.0, bank.getAccountBalance("TestUser"), 0.001);
+        assertTrue(bank.verifyBalances().isEmpty());
+
+        p.setIncomingInterest(0.5); // modified behind the bank's back: 50.0 instead of 90.0
+        assertEquals(40.0, bank.verifyBalances().get("TestUser"), 0.001);
+        assertEquals(50.0, bank.getAccountBalance("TestUser"), 0.001);
+
+        // the derived indexes were rebuilt along with the balance
+        assertEquals(50.0, bank.getAccountSubtotal("TestUser", true), 0.001);
+        assertEquals(50.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 1, 1)), 0.001);
+        assertEquals(List.of(p), bank.getTransactionsSorted("TestUser", true));
+        assertTrue(bank.verifyBalances().isEmpty());
+        bank.removeTransaction("TestUser", p);
+        assertEquals(0.0, bank.getAccountSubtotal("TestUser", true), 0.001);
+    }
+
     /**
      * Tests if data is correctly loaded from the file system.
      * This covers the readAccounts() requirement.
@@ -121,6 +171,42 @@ public class PrivateBankTest {
         assertTrue(reloadedBank.containsTransaction("TestUser", p), "Reloaded bank should contain the transaction from the file");
     }
 
+    /**
+     * Account files written before amounts were stored in cents must still load.
+     */
+    @Test
+    void testLegacyJsonFileIsReadable() throws Exception {
+        String legacy = "[\n" +
+                "  {\n    \"incomingInterest\": 0.1,\n    \"outgoingInterest\": 0.1,\n" +
+                "    \"date\": \"01.01.2024\",\n    \"amount\": 100.0,\n    \"description\": \"Old\",\n" +
+                "    \"CLASSNAME\": \"Payment\"\n  },\n" +
+                "  {\n    \"sender\": \"Oma\",\n    \"recipient\": \"Legacy\",\n" +
+                "    \"date\": \"02.01.2024\",\n    \"amount\": 50.25,\n    \"description\": \"Gift\",\n" +
+                "    \"CLASSNAME\": \"IncomingTransfer\"\n  }\n]";
+        java.nio.file.Files.writeString(new File(TEST_DIR, "Konto Legacy.json").toPath(), legacy);
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertTrue(reloaded.containsTransaction("Legacy", new Payment("01.01.2024", 100.0, "Old", 0.1, 0.1)));
+        assertTrue(reloaded.containsTransaction("Legacy", new IncomingTransfer("02.01.2024", 50.25, "Gift", "Oma", "Legacy")));
+        assertEquals(14025, reloaded.getAccountBalanceCents("Legacy"));
+
+        // the streaming writer must produce exactly the same document again
+        Transfer temporary = new Transfer("03.01.2024", 1.0, "Temporary", "A", "B");
+        reloaded.addTransaction("Legacy", temporary);
+        reloaded.removeTransaction("Legacy", temporary);
+        assertEquals(legacy, java.nio.file.Files.readString(new File(TEST_DIR, "Konto Legacy.json").toPath()));
+    }
+
+    /**
+     * An empty account file is read as an account without transactions.
+     */
+    @Test
+    void testEmptyAccountFileIsReadable() throws Exception {
+        java.nio.file.Files.writeString(new File(TEST_DIR, "Konto Empty.json").toPath(), "");
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertTrue(reloaded.getTransactions("Empty").isEmpty());
+    }
+
     /**
      * Testet getAccountBalance mit einem Mix aus Payment, Incoming und Outgoing.
      */
@@ -155,4 +241,531 @@ public class PrivateBankTest {
         assertEquals(t2, sortedDesc.get(1)); // 10
         assertEquals(t3, sortedDesc.get(2)); // -50
     }
-}
\ No newline at end of file
+
+    /**
+     * Balances as of a day follow in-order and out-of-order additions as well as removals and
+     * agree with a full scan; undated transactions are not included.
+     */
+    @Test
+    void testBalanceAsOf() throws Exception {
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            // two transfers per day, in date order
+            Transaction t = new IncomingTransfer(String.format("%02d.03.2024", (i + 1) / 2), i, "T" + i, "X", "TestUser");
+            bank.addTransaction("TestUser", t);
+            added.add(t);
+        }
+        bank.addTransaction("TestUser", new IncomingTransfer("irgendwann", 1000.0, "Undated", "X", "TestUser"));
+        assertEquals(0.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 2, 29)), 0.001);
+        assertEquals(3.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 3, 1)), 0.001);
+        assertEquals(210.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 12, 31)), 0.001);
+
+        // out of date order, then removals in the middle and at the end
+        bank.addTransaction("TestUser", new OutgoingTransfer("02.03.2024", 50.0, "Late entry", "TestUser", "Y"));
+        assertEquals(-40.0, bank.getBalanceAsOf("TestUser", LocalDate.of(2024, 3, 2)), 0.001);
+        bank.removeTransaction("TestUser", added.get(0));
+        bank.removeTransaction("TestUser", added.get(19));
+        bank.addTransaction("TestUser", new IncomingTransfer("31.03.2024", 5.0, "Month end", "X", "TestUser"));
+        for (int day = 1; day <= 31; day++) {
+            LocalDate date = LocalDate.of(2024, 3, day);
+            long expected = 0;
+            for (Transaction t : bank.getTransactions("TestUser")) {
+                if (t.getEpochDay() != TransactionDates.UNDATED && t.getEpochDay() <= date.toEpochDay()) expected += t.calculateCents();
+            }
+            assertEquals(expected, bank.getBalanceAsOfCents("TestUser", date), "as of " + date);
+        }
+        assertEquals(0.0, bank.getBalanceAsOf("Nobody", LocalDate.of(2024, 3, 1)), 0.001);
+    }
+
+    /**
+     * Snapshot views are immutable, shared until the next mutation and unaffected by it;
+     * the stream and iterator forms walk the same snapshot.
+     */
+    @Test
+    void testTransactionsViewIsSharedImmutableSnapshot() throws Exception {
+        IncomingTransfer first = new IncomingTransfer("01.01.2024", 30.0, "First", "X", "TestUser");
+        OutgoingTransfer second = new OutgoingTransfer("02.01.2024", 20.0, "Second", "TestUser", "X");
+        bank.addTransaction("TestUser", first);
+        bank.addTransaction("TestUser", second);
+
+        List<Transaction> view = bank.getTransactionsView("TestUser");
+        assertEquals(List.of(first, second), view);
+        assertSame(view, bank.getTransactionsView("TestUser"));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+
+        bank.removeTransaction("TestUser", first);
+        assertEquals(List.of(first, second), view);
+        assertEquals(List.of(second), bank.getTransactionsView("TestUser"));
+        assertEquals(List.of(second), bank.streamTransactions("TestUser").collect(Collectors.toList()));
+
+        // the action runs outside the account lock, so it may write to the same account
+        bank.forEachTransaction("TestUser", t -> assertDoesNotThrow(() -> bank.addTransaction("TestUser", first)));
+        assertEquals(List.of(second, first), bank.getTransactionsView("TestUser"));
+        assertTrue(bank.getTransactionsView("Nobody").isEmpty());
+    }
+
+    /**
+     * Pages cut the insertion order; date ranges are inclusive, ordered by date, skip undated
+     * transactions and follow removals.
+     */
+    @Test
+    void testPaginationAndDateRanges() throws Exception {
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // days 10, 9, ..., 1 of January, so insertion and date order differ
+            Transaction t = new IncomingTransfer(String.format("%02d.01.2024", 10 - i), 1.0, "T" + i, "X", "TestUser");
+            bank.addTransaction("TestUser", t);
+            added.add(t);
+        }
+        IncomingTransfer undated = new IncomingTransfer("someday", 1.0, "Undated", "X", "TestUser");
+        bank.addTransaction("TestUser", undated);
+
+        assertEquals(added.subList(0, 4), bank.getTransactions("TestUser", 0, 4));
+        assertEquals(added.subList(8, 10), bank.getTransactions("TestUser", 8, 2));
+        assertEquals(List.of(added.get(9), added.get(8), added.get(7)),
+                bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3)));
+        assertEquals(List.of(added.get(7), added.get(6)),
+                bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 2, 2));
+        assertEquals(List.of(undated), bank.getTransactions("TestUser", 10, 50));
+        assertTrue(bank.getTransactions("TestUser", 100, 5).isEmpty());
+        assertEquals(10, bank.getTransactionsBetween("TestUser", LocalDate.MIN, LocalDate.MAX).size());
+
+        bank.removeTransaction("TestUser", added.get(8));
+        assertEquals(List.of(added.get(9), added.get(7)),
+                bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3)));
+        assertThrows(IllegalArgumentException.class, () -> bank.getTransactions("TestUser", -1, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> bank.getTransactionsBetween("TestUser", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+    }
+
+    /**
+     * Pages stay correct while transactions are removed and added in between, including after
+     * the positional index compacts itself; unknown accounts give empty pages.
+     */
+    @Test
+    void testPagesFollowRemovals() throws Exception {
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction t = new Transfer("01.01.2024", 1.0 + i, "Page " + i, "X", "Y");
+            bank.addTransaction("TestUser", t);
+            expected.add(t);
+        }
+        for (int i = 99; i >= 0; i--) {
+            if (i % 3 != 0) bank.removeTransaction("TestUser", expected.remove(i));
+            if (i % 10 == 0) {
+                for (int offset = 0; offset <= expected.size(); offset += 7) {
+                    assertEquals(expected.subList(offset, Math.min(offset + 7, expected.size())),
+                            bank.getTransactions("TestUser", offset, 7));
+                }
+            }
+        }
+        Transfer last = new Transfer("02.01.2024", 500.0, "Last", "X", "Y");
+        bank.addTransaction("TestUser", last);
+        expected.add(last);
+        assertEquals(expected.subList(30, 35), bank.getTransactions("TestUser", 30, 10));
+        assertEquals(List.of(), bank.getTransactions("TestUser", 3, 0));
+        assertEquals(new ArrayList<>(), bank.getTransactions("Nobody", 0, 10));
+        assertEquals(new ArrayList<>(), bank.getTransactionsBetween("Nobody", LocalDate.MIN, LocalDate.MAX, 0, 10));
+    }
+
+    /**
+     * The incoming and outgoing partitions and their subtotals follow additions and removals;
+     * the returned lists are read-only and reused until the account changes.
+     */
+    @Test
+    void testTransactionsByTypeArePartitioned() throws Exception {
+        IncomingTransfer in = new IncomingTransfer("01.01.2024", 30.0, "In", "X", "TestUser");
+        OutgoingTransfer out = new OutgoingTransfer("02.01.2024", 20.0, "Out", "TestUser", "X");
+        Payment deposit = new Payment("03.01.2024", 100.0, "Deposit", 0.1, 0.1);
+        bank.addTransaction("TestUser", in);
+        bank.addTransaction("TestUser", out);
+        bank.addTransaction("TestUser", deposit);
+
+        List<Transaction> incoming = bank.getTransactionsByType("TestUser", true);
+        assertEquals(List.of(in, deposit), incoming);
+        assertEquals(List.of(out), bank.getTransactionsByType("TestUser", false));
+        assertSame(incoming, bank.getTransactionsByType("TestUser", true));
+        assertThrows(UnsupportedOperationException.class, () -> incoming.add(out));
+        assertEquals(120.0, bank.getAccountSubtotal("TestUser", true), 0.001);
+        assertEquals(-20.0, bank.getAccountSubtotal("TestUser", false), 0.001);
+
+        bank.removeTransaction("TestUser", in);
+        assertEquals(List.of(in, deposit), incoming);
+        assertEquals(List.of(deposit), bank.getTransactionsByType("TestUser", true));
+        assertEquals(9000, bank.getAccountSubtotalCents("TestUser", true));
+        assertTrue(bank.getTransactionsByType("Nobody", true).isEmpty());
+    }
+
+    /**
+     * The sorted index follows additions and removals, keeps equal values in insertion order
+     * in both directions and survives unloading and reloading the account.
+     */
+    @Test
+    void testSortedIndexIsMaintainedIncrementally() throws Exception {
+        IncomingTransfer a = new IncomingTransfer("01.01.2024", 10.0, "A", "X", "TestUser");
+        IncomingTransfer b = new IncomingTransfer("02.01.2024", 10.0, "B", "X", "TestUser");
+        OutgoingTransfer c = new OutgoingTransfer("03.01.2024", 5.0, "C", "TestUser", "X");
+        IncomingTransfer d = new IncomingTransfer("04.01.2024", 20.0, "D", "X", "TestUser");
+        bank.addTransaction("TestUser", a);
+        bank.addTransaction("TestUser", b);
+        bank.addTransaction("TestUser", c);
+        bank.addTransaction("TestUser", d);
+        assertEquals(List.of(c, a, b, d), bank.getTransactionsSorted("TestUser", true));
+        assertEquals(List.of(d, a, b, c), bank.getTransactionsSorted("TestUser", false));
+
+        bank.removeTransaction("TestUser", a);
+        bank.removeTransaction("TestUser", c);
+        assertEquals(List.of(b, d), bank.getTransactionsSorted("TestUser", true));
+        assertEquals(List.of(d, b), bank.getTransactionsSorted("TestUser", false));
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertEquals(List.of(b, d), reloaded.getTransactionsSorted("TestUser", true));
+    }
+
+    /**
+     * In journaling mode a mutation is appended to the journal, the snapshot stays untouched,
+     * and a reloaded bank replays the journal.
+     */
+    @Test
+    void testJournalingAppendsAndReplays() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(true);
+        PrivateBank journaled = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        File snapshot = new File(TEST_DIR, "Konto TestUser.json");
+        long snapshotSize = snapshot.length();
+
+        Payment p = new Payment("01.01.2024", 100.0, "Journal", 0.1, 0.1);
+        Transfer t = new Transfer("02.01.2024", 10.0, "Gone", "A", "B");
+        journaled.addTransaction("TestUser", p);
+        journaled.addTransaction("TestUser", t);
+        journaled.removeTransaction("TestUser", t);
+
+        assertEquals(snapshotSize, snapshot.length(), "Snapshot should not be rewritten per mutation");
+        assertTrue(new File(TEST_DIR, "Konto TestUser.journal").exists());
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertTrue(reloaded.containsTransaction("TestUser", p));
+        assertFalse(reloaded.containsTransaction("TestUser", t));
+    }
+
+    /**
+     * A torn last journal record is cut off on replay, so the records appended after the
+     * restart start on a line of their own and survive the next restart.
+     */
+    @Test
+    void testJournalTornTailIsTruncated() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(true);
+        Payment first = new Payment("01.01.2024", 100.0, "Before crash", 0.1, 0.1);
+        new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options).addTransaction("TestUser", first);
+        File journal = new File(TEST_DIR, "Konto TestUser.journal");
+        java.nio.file.Files.writeString(journal.toPath(), "{\"op\":\"ADD\",\"transa",
+                java.nio.file.StandardOpenOption.APPEND);
+
+        PrivateBank restarted = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        Payment second = new Payment("02.01.2024", 20.0, "After crash", 0.1, 0.1);
+        Payment third = new Payment("03.01.2024", 30.0, "Later", 0.1, 0.1);
+        restarted.addTransaction("TestUser", second);
+        restarted.addTransaction("TestUser", third);
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertEquals(List.of(first, second, third), reloaded.getTransactions("TestUser"));
+        assertTrue(reloaded.getQuarantinedFiles().isEmpty());
+        assertTrue(journal.exists());
+    }
+
+    /**
+     * A bulk import is written as one snapshot, even in journaling mode, and a rejected
+     * transaction rolls the whole import back.
+     */
+    @Test
+    void testBulkImportPersistsOnceAndRollsBack() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(true);
+        PrivateBank journaled = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        int added = journaled.addTransactions("TestUser", IntStream.range(0, 10_000)
+                .mapToObj(i -> new Payment("01.01.2024", 1.0, "Bulk " + i)));
+        assertEquals(10_000, added);
+        assertFalse(new File(TEST_DIR, "Konto TestUser.journal").exists(), "Bulk import should not be journaled");
+        assertEquals(9000.0, journaled.getAccountBalance("TestUser"), 0.001);
+
+        File snapshot = new File(TEST_DIR, "Konto TestUser.json");
+        long snapshotSize = snapshot.length();
+        IncomingTransfer fresh = new IncomingTransfer("02.01.2024", 5.0, "Fresh", "X", "TestUser");
+        List<Transaction> rejected = List.of(fresh, new Payment("01.01.2024", 1.0, "Bulk 7"));
+        assertThrows(TransactionAlreadyExistException.class, () -> journaled.addTransactions("TestUser", rejected));
+        assertFalse(journaled.containsTransaction("TestUser", fresh));
+        assertEquals(10_000, journaled.getTransactions("TestUser").size());
+        assertEquals(snapshotSize, snapshot.length());
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertEquals(10_000, reloaded.getTransactions("TestUser").size());
+        assertTrue(reloaded.containsTransaction("TestUser", new Payment("01.01.2024", 1.0, "Bulk 9999", 0.1, 0.1)));
+        assertThrows(AccountDoesNotExistException.class, () -> reloaded.addTransactions("Nobody", List.of(fresh)));
+    }
+
+    /**
+     * The journal is folded into the snapshot once the compaction threshold is reached.
+     */
+    @Test
+    void testJournalCompaction() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setJournaling(true);
+        options.setCompactionThreshold(2);
+        PrivateBank journaled = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+
+        journaled.addTransaction("TestUser", new Payment("01.01.2024", 100.0, "One", 0.1, 0.1));
+        assertTrue(new File(TEST_DIR, "Konto TestUser.journal").exists());
+        journaled.addTransaction("TestUser", new Payment("02.01.2024", 200.0, "Two", 0.1, 0.1));
+        assertFalse(new File(TEST_DIR, "Konto TestUser.journal").exists(), "Journal should be compacted");
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertEquals(2, reloaded.getTransactions("TestUser").size());
+    }
+
+    /**
+     * With group commit, many mutations are written in few batches and the futures complete
+     * once the data is on disk.
+     */
+    @Test
+    void testGroupCommitBatchesWrites() throws Exception {
+        for (boolean journaling : new boolean[]{false, true}) {
+            PersistenceOptions options = new PersistenceOptions();
+            options.setGroupCommit(true);
+            options.setJournaling(journaling);
+            options.setCommitWindowMillis(50);
+            String account = "Group" + journaling;
+            try (PrivateBank grouped = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options)) {
+                grouped.createAccount(account);
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    futures.add(grouped.addTransactionAsync(account, new Payment("01.01.2024", i + 1, "Batch " + i, 0.1, 0.1)));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+                assertTrue(grouped.getCommittedBatchCount() < 200, "Mutations should be grouped into batches");
+
+                grouped.removeTransaction(account, new Payment("01.01.2024", 1, "Batch 0", 0.1, 0.1));
+                grouped.flush();
+            }
+            PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+            assertEquals(199, reloaded.getTransactions(account).size());
+        }
+    }
+
+    /**
+     * A failed group commit snapshot is retried by the next batch; neither the new account
+     * nor its pending journal records are lost.
+     */
+    @Test
+    void testFailedGroupCommitSnapshotIsRetried() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setGroupCommit(true);
+        options.setJournaling(true);
+        options.setCommitWindowMillis(50);
+        Payment first = new Payment("01.01.2024", 10.0, "First", 0.1, 0.1);
+        Payment second = new Payment("02.01.2024", 20.0, "Second", 0.1, 0.1);
+        File blocker = new File(TEST_DIR, "Konto Retry.json.tmp");
+        try (PrivateBank grouped = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options)) {
+            // a directory in place of the temporary file makes the snapshot write fail
+            assertTrue(blocker.mkdirs());
+            grouped.createAccount("Retry");
+            grouped.addTransactionAsync("Retry", first);
+            assertThrows(IOException.class, grouped::flush);
+            assertFalse(new File(TEST_DIR, "Konto Retry.json").exists());
+
+            // the failed write removed the empty directory with its temporary file
+            assertFalse(blocker.exists());
+            grouped.addTransactionAsync("Retry", second).get(10, TimeUnit.SECONDS);
+        }
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertEquals(List.of(first, second), reloaded.getTransactions("Retry"));
+        reloaded.close();
+    }
+
+    /**
+     * With lazy loading the constructor only indexes the account names;
+     * transactions are read on first access.
+     */
+    @Test
+    void testLazyLoading() throws Exception {
+        Payment p = new Payment("01.01.2024", 100.0, "Lazy", 0.1, 0.1);
+        bank.addTransaction("TestUser", p);
+        bank.createAccount("Second");
+
+        PersistenceOptions options = new PersistenceOptions();
+        options.setLazyLoading(true);
+        PrivateBank lazy = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertEquals(0, lazy.getLoadedAccountCount());
+        assertThrows(AccountAlreadyExistsException.class, () -> lazy.createAccount("Second"));
+
+        assertEquals(90.0, lazy.getAccountBalance("TestUser"), 0.001);
+        assertEquals(1, lazy.getLoadedAccountCount());
+
+        lazy.addTransaction("Second", new Transfer("02.01.2024", 5.0, "Loaded on write", "A", "B"));
+        assertEquals(2, lazy.getLoadedAccountCount());
+        assertEquals(new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR), lazy);
+    }
+
+    @Test
+    void testLruCacheEvictsColdAccounts() throws Exception {
+        for (int a = 0; a < 4; a++) {
+            bank.createAccount("Cache" + a);
+            for (int i = 0; i < 3; i++) {
+                bank.addTransaction("Cache" + a, new Transfer("01.01.2024", 10.0 + i, "T" + i, "A", "B"));
+            }
+        }
+
+        PersistenceOptions options = new PersistenceOptions();
+        options.setLazyLoading(true);
+        options.setMaxCachedTransactions(5);
+        PrivateBank cached = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        for (int round = 0; round < 2; round++) {
+            for (int a = 0; a < 4; a++) {
+                assertEquals(33.0, cached.getAccountBalance("Cache" + a), 0.001);
+            }
+        }
+        cached.addTransaction("Cache0", new Transfer("02.01.2024", 1.0, "After eviction", "A", "B"));
+
+        CacheStatistics stats = cached.getCacheStatistics();
+        assertTrue(stats.getEvictions() > 0);
+        assertTrue(stats.getMisses() > 4, "Evicted accounts must be reloaded");
+        assertTrue(stats.getResidentTransactions() <= 5);
+        assertEquals(34.0, cached.getAccountBalance("Cache0"), 0.001);
+        assertTrue(cached.getCacheStatistics().getHits() > 0);
+        assertEquals(new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR), cached);
+        assertThrows(IllegalArgumentException.class, () -> options.setMaxCachedTransactions(-1));
+    }
+
+    @Test
+    void testBinaryStorageFormat() throws Exception {
+        PersistenceOptions options = new PersistenceOptions();
+        options.setStorageFormat(StorageFormat.BINARY);
+        PrivateBank binary = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        binary.createAccount("Binary");
+        binary.addTransaction("Binary", new Payment("01.01.2024", -12.35, "Rent", 0.1, 0.1));
+        for (int i = 0; i < 20; i++) {
+            binary.addTransaction("Binary", new IncomingTransfer("02.01.2024", 0.01 + i, "Salary", "Employer", "Binary"));
+        }
+        binary.addTransaction("Binary", new OutgoingTransfer("03.01.2024", 5.0, null, "Binary", "Shop"));
+
+        File bin = new File(TEST_DIR, "Konto Binary.bin");
+        assertTrue(bin.exists());
+        assertFalse(new File(TEST_DIR, "Konto Binary.json").exists());
+
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertEquals(binary.getTransactions("Binary"), reloaded.getTransactions("Binary"));
+        assertEquals(binary.getAccountBalanceCents("Binary"), reloaded.getAccountBalanceCents("Binary"));
+    }
+
+    @Test
+    void testStorageConverterRoundTrip() throws Exception {
+        bank.addTransaction("TestUser", new Payment("01.01.2024", 100.0, "Deposit", 0.1, 0.1));
+        bank.addTransaction("TestUser", new Transfer("02.01.2024", 25.5, "Gift", "Oma", "TestUser"));
+        File json = new File(TEST_DIR, "Konto TestUser.json");
+        String original = java.nio.file.Files.readString(json.toPath());
+
+        assertEquals(1, StorageConverter.convert(TEST_DIR, StorageFormat.JSON, StorageFormat.BINARY));
+        File bin = new File(TEST_DIR, "Konto TestUser.bin");
+        assertTrue(bin.length() < json.length(), "Binary file must be smaller than JSON");
+
+        PersistenceOptions options = new PersistenceOptions();
+        options.setStorageFormat(StorageFormat.BINARY);
+        assertEquals(bank.getTransactions("TestUser"),
+                new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options).getTransactions("TestUser"));
+
+        assertTrue(json.delete());
+        StorageConverter.convert(TEST_DIR, StorageFormat.BINARY, StorageFormat.JSON);
+        assertEquals(original, java.nio.file.Files.readString(json.toPath()));
+        assertTrue(new File(TEST_DIR, "Konto TestUser.bin.crc").exists());
+        assertTrue(new File(TEST_DIR, "Konto TestUser.json.crc").exists());
+
+        // a source that does not match its checksum is not converted
+        java.nio.file.Files.writeString(json.toPath(), original.replace("25.5", "99.5"));
+        assertThrows(IOException.class, () -> StorageConverter.convert(TEST_DIR, StorageFormat.JSON, StorageFormat.BINARY));
+        assertEquals(bank.getTransactions("TestUser"),
+                new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options).getTransactions("TestUser"));
+    }
+
+    @Test
+    void testInvalidBinaryFileIsQuarantined() throws Exception {
+        java.nio.file.Files.write(new File(TEST_DIR, "Konto Broken.bin").toPath(), new byte[]{1, 2, 3, 4, 5});
+        PersistenceOptions options = new PersistenceOptions();
+        options.setStorageFormat(StorageFormat.BINARY);
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertFalse(new File(TEST_DIR, "Konto Broken.bin").exists());
+        assertEquals(1, reloaded.getQuarantinedFiles().size());
+        assertThrows(AccountDoesNotExistException.class,
+                () -> reloaded.addTransaction("Broken", new Transfer("01.01.2024", 1.0, "X", "A", "B")));
+
+        // a valid header with a record length of 2^31 - 1 must not allocate a buffer of that size
+        java.nio.file.Files.write(new File(TEST_DIR, "Konto Huge.bin").toPath(), new byte[]{
+                0x42, 0x4B, 0x41, 0x43, 1, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        PrivateBank recovered = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertFalse(new File(TEST_DIR, "Konto Huge.bin").exists());
+        assertEquals(1, recovered.getQuarantinedFiles().size());
+    }
+
+    @Test
+    void testAccountFilesAreReplacedAtomicallyWithChecksum() throws Exception {
+        bank.addTransaction("TestUser", new Transfer("01.01.2024", 10.0, "First", "A", "B"));
+        File json = new File(TEST_DIR, "Konto TestUser.json");
+        assertTrue(new File(TEST_DIR, "Konto TestUser.json.crc").exists());
+        assertFalse(new File(TEST_DIR, "Konto TestUser.json.tmp").exists());
+
+        // a crash during a write leaves only a temporary file behind, which is discarded
+        java.nio.file.Files.writeString(new File(TEST_DIR, "Konto TestUser.json.tmp").toPath(), "[ {\"trunc");
+        PrivateBank reloaded = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertEquals(1, reloaded.getTransactions("TestUser").size());
+        assertFalse(new File(TEST_DIR, "Konto TestUser.json.tmp").exists());
+        assertTrue(reloaded.getQuarantinedFiles().isEmpty());
+
+        // a file that does not match its checksum is quarantined, the other accounts still load
+        bank.createAccount("Other");
+        String content = java.nio.file.Files.readString(json.toPath());
+        java.nio.file.Files.writeString(json.toPath(), content.replace("10.0", "99.0"));
+        PrivateBank recovered = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR);
+        assertFalse(recovered.containsTransaction("TestUser", new Transfer("01.01.2024", 99.0, "First", "A", "B")));
+        assertTrue(recovered.getTransactions("TestUser").isEmpty());
+        assertEquals(2, recovered.getQuarantinedFiles().size());
+        assertTrue(new File(TEST_DIR, PrivateBank.QUARANTINE_DIRECTORY).isDirectory());
+        recovered.addTransaction("Other", new Transfer("02.01.2024", 1.0, "Still works", "A", "B"));
+    }
+
+    @Test
+    void testCorruptFileIsQuarantinedOnLazyLoad() throws Exception {
+        java.nio.file.Files.writeString(new File(TEST_DIR, "Konto Lazy.json").toPath(), "[ { \"amount\": ");
+        PersistenceOptions options = new PersistenceOptions();
+        options.setLazyLoading(true);
+        PrivateBank lazy = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, options);
+        assertTrue(lazy.getTransactions("Lazy").isEmpty());
+        assertFalse(new File(TEST_DIR, "Konto Lazy.json").exists());
+        assertEquals(1, lazy.getQuarantinedFiles().size());
+    }
+
+    @Test
+    void testParallelStartupLoading() throws Exception {
+        for (int a = 0; a < 20; a++) {
+            bank.createAccount("Parallel" + a);
+            for (int i = 0; i < 10; i++) {
+                bank.addTransaction("Parallel" + a, new Transfer("01.01.2024", a + i, "T" + i, "A", "B"));
+            }
+        }
+
+        PersistenceOptions sequential = new PersistenceOptions();
+        sequential.setLoadParallelism(1);
+        PersistenceOptions parallel = new PersistenceOptions();
+        parallel.setLoadParallelism(4);
+        PrivateBank one = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, sequential);
+        PrivateBank four = new PrivateBank("TestBank", 0.1, 0.1, TEST_DIR, parallel);
+        assertEquals(one, four);
+
+        LoadReport report = four.getLoadReport();
+        assertEquals(21, report.getAccountCount());
+        assertEquals(21, report.getLoadedAccountCount());
+        assertEquals(200, report.getTransactionCount());
+        assertEquals(4, report.getParallelism());
+        assertEquals(1, one.getLoadReport().getParallelism());
+        assertEquals(0, report.getQuarantinedAccountCount());
+        assertThrows(IllegalArgumentException.class, () -> parallel.setLoadParallelism(0));
+    }
+}
@@ -0,0 +1,67 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.Objects;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionSerializerTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Transaction.class, new TransactionSerializer())
+            .create();
+
+    @Test
+    void testRoundTripOfAllTypes() throws TransactionAttributeException {
+        Transaction[] transactions = {
+                new Payment("01.01.2024", -12.35, "Payment", 0.05, 0.1),
+                new Transfer("02.01.2024", 10.0, "Transfer", "A", "B"),
+                new IncomingTransfer("03.01.2024", 20.5, "Incoming", "A", "Me"),
+                new OutgoingTransfer("04.01.2024", 0.01, "Outgoing", "Me", "B")
+        };
+        for (Transaction t : transactions) {
+            Transaction read = gson.fromJson(gson.toJson(t, Transaction.class), Transaction.class);
+            assertSame(t.getClass(), read.getClass());
+            assertEquals(t, read);
+            assertEquals(t.calculateCents(), read.calculateCents());
+        }
+    }
+
+    @Test
+    void testWireFormat() throws TransactionAttributeException {
+        Transfer transfer = new OutgoingTransfer("04.01.2024", 7.5, "Rent", "Me", "Landlord");
+        assertEquals("{\"sender\":\"Me\",\"recipient\":\"Landlord\",\"date\":\"04.01.2024\",\"amount\":7.5," +
+                "\"description\":\"Rent\",\"CLASSNAME\":\"OutgoingTransfer\"}", gson.toJson(transfer, Transaction.class));
+    }
+
+    /**
+     * Dates are held as epoch days, but written exactly as read; dates that cannot be parsed
+     * are kept verbatim. Hash codes stay those of the date strings, as stored in mapped logs.
+     */
+    @Test
+    void testDatesAreWireCompatible() throws TransactionAttributeException {
+        for (String date : new String[]{"29.02.2024", "01.01.0001", "31.12.9999", "31.02.2024", "2024-01-01", "", null}) {
+            Transfer transfer = new Transfer(date, 1.0, "Dated", "A", "B");
+            assertEquals(date, transfer.getDate());
+            Transaction read = gson.fromJson(gson.toJson(transfer, Transaction.class), Transaction.class);
+            assertEquals(date, read.getDate());
+            assertEquals(transfer, read);
+            int expected = 31 * Objects.hash(date, transfer.getAmountCents(), "Dated") + Objects.hash("A", "B");
+            assertEquals(expected, transfer.hashCode());
+        }
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), new Payment("29.02.2024", 1.0, "Leap").getEpochDay());
+        assertNotEquals(new Payment("01.01.2024", 1.0, "A"), new Payment("02.01.2024", 1.0, "A"));
+    }
+
+    @Test
+    void testUnknownOrMissingTypeIsRejected() {
+        assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"amount\":1.0,\"CLASSNAME\":\"Bitcoin\"}", Transaction.class));
+        assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"amount\":1.0,\"description\":\"No tag\"}", Transaction.class));
+    }
+}
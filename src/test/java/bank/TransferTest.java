@@ -54,6 +54,13 @@ public class TransferTest {
         assertNotEquals(transfer, diff);
     }
 
+    @Test
+    void testHashCodeConsistentWithEquals() throws TransactionAttributeException {
+        Transfer same = new Transfer("01.01.2024", 100.0, "Standard", "Sender", "Receiver");
+        assertEquals(transfer.hashCode(), same.hashCode());
+        assertEquals(transfer.hashCode(), new Transfer(transfer).hashCode());
+    }
+
     @Test
     void testToString() {
         String str = transfer.toString();